@@ -0,0 +1,80 @@
+#!/bin/sh
+# Сравнение платформенных и виртуальных потоков на запущенных ewm и stats-server под одной нагрузкой.
+# Для каждого режима сервисы стартуют с SPRING_THREADS_VIRTUAL_ENABLED=false/true, ewm заполняется
+# событиями через API, затем HttpLoad держит CONNECTIONS одновременных клиентов DURATION секунд
+# на GET /events/{id} и GET /events. Базы по умолчанию — из docker-compose (ewm-db на 5432, stats-db на 5433).
+set -eu
+
+cd "$(dirname "$0")/../.."
+CONNECTIONS=${CONNECTIONS:-1000}
+DURATION=${DURATION:-30}
+EVENTS=${EVENTS:-50}
+EWM_DB_URL=${EWM_DB_URL:-jdbc:postgresql://localhost:5432/ewm}
+STATS_DB_URL=${STATS_DB_URL:-jdbc:postgresql://localhost:5433/stats}
+JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+OUT=target/load
+EWM=http://localhost:8080
+JSON="Content-Type: application/json"
+
+mkdir -p "$OUT"
+if [ "${SKIP_BUILD:-false}" != true ]; then
+    # профиль benchmarks собирает сервисы без repackage, исполняемые jar пересобираются вторым проходом
+    mvn -B -q -Pbenchmarks package -DskipTests
+    mvn -B -q package -DskipTests
+fi
+
+json_id() {
+    grep -o '"id":[0-9]*' | head -1 | cut -d: -f2
+}
+
+wait_started() {
+    for _ in $(seq 1 120); do
+        if grep -q "Started \|APPLICATION FAILED" "$1"; then
+            grep -q "Started " "$1" && return 0
+            break
+        fi
+        sleep 1
+    done
+    echo "Сервис не стартовал, см. $1" >&2
+    return 1
+}
+
+seed() {
+    user=$(curl -s -XPOST $EWM/admin/users -H "$JSON" -d '{"name":"Load Test","email":"load'$$'@mail.ru"}' | json_id)
+    category=$(curl -s -XPOST $EWM/admin/categories -H "$JSON" -d '{"name":"load'$$'"}' | json_id)
+    for i in $(seq 1 "$EVENTS"); do
+        event=$(curl -s -XPOST $EWM/users/$user/events -H "$JSON" -d '{"annotation":"Load test event annotation '$i'","category":'$category',"description":"Load test event description number '$i'","eventDate":"2030-01-01 12:00:00","location":{"lat":55.7,"lon":37.6},"paid":false,"participantLimit":0,"requestModeration":false,"title":"Load '$i'"}' | json_id)
+        curl -s -o /dev/null -XPATCH $EWM/admin/events/$event -H "$JSON" -d '{"stateAction":"PUBLISH_EVENT"}'
+    done
+    echo "$event"
+}
+
+run_mode() {
+    virtual=$1
+    SPRING_THREADS_VIRTUAL_ENABLED=$virtual SPRING_DATASOURCE_URL=$STATS_DB_URL \
+        SPRING_DATASOURCE_USERNAME=stats SPRING_DATASOURCE_PASSWORD=stats \
+        "$JAVA" -jar stats/stats-server/target/stats-server-*.jar > "$OUT/stats-$virtual.log" 2>&1 &
+    stats_pid=$!
+    SPRING_THREADS_VIRTUAL_ENABLED=$virtual SPRING_DATASOURCE_URL=$EWM_DB_URL \
+        SPRING_DATASOURCE_USERNAME=ewm SPRING_DATASOURCE_PASSWORD=ewm STATS_SERVER_URL=http://localhost:9090 \
+        "$JAVA" -jar ewm/target/ewm-*.jar > "$OUT/ewm-$virtual.log" 2>&1 &
+    ewm_pid=$!
+    trap 'kill $stats_pid $ewm_pid 2>/dev/null' EXIT
+
+    wait_started "$OUT/stats-$virtual.log"
+    wait_started "$OUT/ewm-$virtual.log"
+    event=$(seed | tail -1)
+
+    echo "virtual=$virtual"
+    for path in "/events/$event" "/events"; do
+        "$JAVA" -cp benchmarks/target/benchmarks.jar ru.practicum.benchmarks.HttpLoad "$EWM$path" "$CONNECTIONS" "$DURATION"
+    done
+    echo "hikari timeouts: $(grep -c 'Connection is not available' "$OUT/ewm-$virtual.log" || true)"
+
+    kill $stats_pid $ewm_pid
+    wait $stats_pid $ewm_pid 2>/dev/null || true
+    trap - EXIT
+}
+
+run_mode false
+run_mode true
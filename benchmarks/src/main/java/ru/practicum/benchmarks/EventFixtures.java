@@ -0,0 +1,43 @@
+package ru.practicum.benchmarks;
+
+import ru.practicum.category.model.Category;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.model.Location;
+import ru.practicum.event.model.State;
+import ru.practicum.users.model.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+final class EventFixtures {
+
+    private EventFixtures() {
+    }
+
+    static List<Event> events(int count) {
+        LocalDateTime now = LocalDateTime.of(2030, 1, 1, 12, 0);
+        List<Event> events = new ArrayList<>(count);
+        for (long i = 1; i <= count; i++) {
+            events.add(Event.builder()
+                    .id(i)
+                    .annotation("Annotation of the benchmark event number " + i)
+                    .description("Description of the benchmark event number " + i + " with some longer text inside")
+                    .category(new Category(i % 10 + 1, "category " + i % 10))
+                    .initiator(User.builder().id(i % 50 + 1).name("user " + i % 50).email("user" + i % 50 + "@mail.ru").build())
+                    .location(Location.builder().id(i).lat(55.75f).lon(37.62f).build())
+                    .eventDate(now.plusDays(i))
+                    .createdOn(now.minusDays(i))
+                    .publishedOn(now.minusDays(i).plusHours(1))
+                    .paid(i % 2 == 0)
+                    .participantLimit((int) (i % 100))
+                    .requestModeration(true)
+                    .state(State.PUBLISHED)
+                    .title("Event " + i)
+                    .confirmedRequests(i % 7)
+                    .views(i * 13)
+                    .build());
+        }
+        return events;
+    }
+}
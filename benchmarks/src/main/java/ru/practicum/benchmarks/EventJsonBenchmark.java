@@ -0,0 +1,57 @@
+package ru.practicum.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.practicum.category.dto.CategoriesMapper;
+import ru.practicum.category.dto.CategoriesMapperImpl;
+import ru.practicum.event.dto.EventShortDto;
+import ru.practicum.event.mapper.EventMapper;
+import ru.practicum.users.dto.UserMapper;
+import ru.practicum.users.dto.UserMapperImpl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventJsonBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private List<EventShortDto> dtos;
+
+    @Setup
+    public void setUp() {
+        EventMapper eventMapper = new EventMapper();
+        CategoriesMapper categoriesMapper = new CategoriesMapperImpl();
+        UserMapper userMapper = new UserMapperImpl();
+        dtos = EventFixtures.events(size).stream()
+                .map(event -> eventMapper.toShortDto(event, categoriesMapper.toDto(event.getCategory()),
+                        userMapper.toShortDto(event.getInitiator())))
+                .toList();
+    }
+
+    @Benchmark
+    public byte[] serializeShortDtos() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(dtos);
+    }
+}
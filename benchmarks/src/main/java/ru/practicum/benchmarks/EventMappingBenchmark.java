@@ -0,0 +1,129 @@
+package ru.practicum.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.practicum.category.dto.CategoriesMapper;
+import ru.practicum.category.dto.CategoriesMapperImpl;
+import ru.practicum.compilation.dto.CompilationDto;
+import ru.practicum.compilation.dto.CompilationMapperImpl;
+import ru.practicum.compilation.model.Compilation;
+import ru.practicum.compilation.repository.CompilationEventLink;
+import ru.practicum.compilation.repository.CompilationRepository;
+import ru.practicum.compilation.service.CompilationService;
+import ru.practicum.event.mapper.EventMapper;
+import ru.practicum.event.mapper.LocationMapper;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.repository.EventRepository;
+import ru.practicum.users.dto.UserMapper;
+import ru.practicum.users.dto.UserMapperImpl;
+
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventMappingBenchmark {
+    private static final int COMPILATIONS_PER_PAGE = 10;
+
+    @Param({"10", "100"})
+    private int size;
+
+    private final EventMapper eventMapper = new EventMapper();
+    private final CategoriesMapper categoriesMapper = new CategoriesMapperImpl();
+    private final UserMapper userMapper = new UserMapperImpl();
+    private final LocationMapper locationMapper = new LocationMapper();
+
+    private List<Event> events;
+    private CompilationService compilationService;
+
+    // страница подборок собирается тем же путём, что и GET /compilations, репозитории отвечают из памяти
+    @Setup
+    public void setUp() {
+        events = EventFixtures.events(size);
+        List<Compilation> compilations = LongStream.rangeClosed(1, COMPILATIONS_PER_PAGE)
+                .mapToObj(id -> Compilation.builder().id(id).title("Compilation " + id).pinned(true)
+                        .events(new HashSet<>(events)).build())
+                .toList();
+        Map<Long, Event> eventsById = events.stream().collect(Collectors.toMap(Event::getId, Function.identity()));
+
+        CompilationRepository compilationRepository = stub(CompilationRepository.class, Map.of(
+                "findPage", args -> compilations,
+                "findEventLinks", args -> compilations.stream()
+                        .flatMap(compilation -> compilation.getEvents().stream()
+                                .map(event -> link(compilation.getId(), event.getId())))
+                        .toList()));
+        EventRepository eventRepository = stub(EventRepository.class, Map.of(
+                "findAllWithCategoryAndInitiator", args -> ((Collection<?>) args[0]).stream()
+                        .map(eventsById::get)
+                        .toList()));
+        compilationService = new CompilationService(compilationRepository, eventRepository, new CompilationMapperImpl(),
+                eventMapper, categoriesMapper, userMapper, event -> { });
+    }
+
+    @Benchmark
+    public void toShortDto(Blackhole blackhole) {
+        for (Event event : events) {
+            blackhole.consume(eventMapper.toShortDto(event, categoriesMapper.toDto(event.getCategory()),
+                    userMapper.toShortDto(event.getInitiator())));
+        }
+    }
+
+    @Benchmark
+    public void toFullDto(Blackhole blackhole) {
+        for (Event event : events) {
+            blackhole.consume(eventMapper.toFullDto(event, categoriesMapper.toDto(event.getCategory()),
+                    userMapper.toShortDto(event.getInitiator()), locationMapper.toLocationDto(event.getLocation())));
+        }
+    }
+
+    @Benchmark
+    public List<CompilationDto> compilationPage() {
+        return compilationService.getCompilations(null, 0, COMPILATIONS_PER_PAGE);
+    }
+
+    private static CompilationEventLink link(Long compilationId, Long eventId) {
+        return new CompilationEventLink() {
+            @Override
+            public Long getCompilationId() {
+                return compilationId;
+            }
+
+            @Override
+            public Long getEventId() {
+                return eventId;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Function<Object[], Object> answer = answers.get(method.getName());
+            if (answer == null) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            return answer.apply(args);
+        });
+    }
+}
@@ -0,0 +1,110 @@
+package ru.practicum.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import ru.practicum.controller.AsyncHitProperties;
+import ru.practicum.controller.StatsClient;
+import ru.practicum.dto.HitDto;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запись хитов из {@value #CONNECTIONS} одновременных запросов: пул платформенных потоков размера Tomcat
+ * против виртуальных потоков, отправка по одному хиту против пакетов HitBatcher. Сервис статистики
+ * подменён ответом с задержкой latencyMillis: при большой задержке пул из {@value #TOMCAT_MAX_THREADS} потоков
+ * упирается в ожидание ответа, а не в процессор.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HitIngestBenchmark {
+    private static final int CONNECTIONS = 1000;
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final byte[] EMPTY_BATCH_RESULT = "{}".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    private String threads;
+
+    @Param({"false", "true"})
+    private boolean batched;
+
+    @Param({"2", "20"})
+    private long latencyMillis;
+
+    private ExecutorService requestExecutor;
+    private StatsClient statsClient;
+    private final HitDto hit = new HitDto("ewm-main-service", "/events/1", "192.168.0.1", "2030-01-01 00:00:00");
+
+    @Setup
+    public void setUp() {
+        requestExecutor = "VIRTUAL".equals(threads)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+
+        RestTemplateBuilder builder = new RestTemplateBuilder().requestFactory(() -> (uri, method) ->
+                new MockClientHttpRequest(method, uri) {
+                    @Override
+                    protected ClientHttpResponse executeInternal() throws IOException {
+                        try {
+                            Thread.sleep(latencyMillis);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException();
+                        }
+                        MockClientHttpResponse response = new MockClientHttpResponse(EMPTY_BATCH_RESULT, HttpStatus.CREATED);
+                        response.getHeaders().add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+                        return response;
+                    }
+                });
+        AsyncHitProperties asyncProperties = new AsyncHitProperties();
+        asyncProperties.setEnabled(batched);
+        statsClient = new StatsClient("http://localhost:9090", builder, asyncProperties,
+                StatsBenchmark.mockHttpProperties(), new SimpleMeterRegistry(), requestExecutor);
+    }
+
+    @TearDown
+    public void tearDown() {
+        statsClient.shutdown();
+        requestExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONNECTIONS)
+    public void concurrentHits() {
+        List<CompletableFuture<Void>> requests = new ArrayList<>(CONNECTIONS);
+        for (int i = 0; i < CONNECTIONS; i++) {
+            requests.add(CompletableFuture.runAsync(() -> statsClient.addHit(hit), requestExecutor));
+        }
+        CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new)).join();
+    }
+}
@@ -0,0 +1,111 @@
+package ru.practicum.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Нагрузка на уже запущенный сервис, без заглушек: connections клиентов на виртуальных потоках
+ * в цикле шлют GET по адресу в течение durationSeconds. Печатает одну строку: запросы в секунду,
+ * ошибки (не 2xx и исключения) и перцентили задержки. Запускается скриптом benchmarks/load/compare-threads.sh:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar ru.practicum.benchmarks.HttpLoad http://localhost:8080/events 1000 30
+ * </pre>
+ */
+public final class HttpLoad {
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+    private HttpLoad() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 3) {
+            System.err.println("Использование: HttpLoad <url> <connections> <durationSeconds>");
+            System.exit(2);
+        }
+        URI uri = URI.create(args[0]);
+        int connections = Integer.parseInt(args[1]);
+        long deadline = System.nanoTime() + Duration.ofSeconds(Long.parseLong(args[2])).toNanos();
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(REQUEST_TIMEOUT).GET().build();
+
+        long started = System.nanoTime();
+        List<Future<Client>> clients = new ArrayList<>(connections);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < connections; i++) {
+                clients.add(executor.submit(() -> new Client().run(client, request, deadline)));
+            }
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        Client total = new Client();
+        for (Future<Client> future : clients) {
+            total.merge(future.get());
+        }
+        long[] latencies = Arrays.copyOf(total.latencies, total.count);
+        Arrays.sort(latencies);
+        System.out.printf("%s connections=%d requests=%d rps=%.1f errors=%d p50=%dms p99=%dms max=%dms%n",
+                uri, connections, total.count, total.count / seconds, total.errors,
+                percentile(latencies, 0.50), percentile(latencies, 0.99),
+                latencies.length == 0 ? 0 : latencies[latencies.length - 1]);
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private static final class Client {
+        private long[] latencies = new long[64];
+        private int count;
+        private long errors;
+
+        Client run(HttpClient client, HttpRequest request, long deadline) {
+            while (System.nanoTime() < deadline) {
+                long start = System.nanoTime();
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() / 100 != 2) {
+                        errors++;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return this;
+                } catch (Exception e) {
+                    errors++;
+                }
+                record((System.nanoTime() - start) / 1_000_000);
+            }
+            return this;
+        }
+
+        void merge(Client other) {
+            for (int i = 0; i < other.count; i++) {
+                record(other.latencies[i]);
+            }
+            errors += other.errors;
+        }
+
+        private void record(long millis) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = millis;
+        }
+    }
+}
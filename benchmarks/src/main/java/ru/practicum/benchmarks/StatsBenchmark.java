@@ -0,0 +1,98 @@
+package ru.practicum.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import ru.practicum.controller.AsyncHitProperties;
+import ru.practicum.controller.StatsClient;
+import ru.practicum.controller.StatsHttpProperties;
+import ru.practicum.dto.StatsDto;
+import ru.practicum.sketch.HyperLogLog;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsBenchmark {
+    private static final int PRECISION = 12;
+    private static final byte[] EMPTY_STATS = "[]".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"10", "100"})
+    private int uris;
+
+    private StatsClient statsClient;
+    private List<String> uriList;
+    private List<byte[]> hourSketches;
+    private final LocalDateTime end = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    @Setup
+    public void setUp() {
+        RestTemplateBuilder builder = new RestTemplateBuilder().requestFactory(() -> (uri, method) -> {
+            MockClientHttpResponse response = new MockClientHttpResponse(EMPTY_STATS, HttpStatus.OK);
+            response.getHeaders().add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+            MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+            request.setResponse(response);
+            return request;
+        });
+        // асинхронные методы клиента здесь не вызываются, исполнитель не нужен
+        statsClient = new StatsClient("http://localhost:9090", builder, new AsyncHitProperties(),
+                mockHttpProperties(), new SimpleMeterRegistry(), Runnable::run);
+        uriList = IntStream.rangeClosed(1, uris).mapToObj(id -> "/events/" + id).toList();
+
+        // почасовые скетчи одного uri за сутки, как их читает HitSketchService
+        hourSketches = new ArrayList<>();
+        for (int hour = 0; hour < 24; hour++) {
+            HyperLogLog sketch = new HyperLogLog(PRECISION);
+            for (int ip = 0; ip < uris * 10; ip++) {
+                sketch.add("10.0." + hour + "." + ip);
+            }
+            hourSketches.add(sketch.toBytes());
+        }
+    }
+
+    // у фабрики-заглушки нет таймаутов: RestTemplateBuilder не смог бы их выставить
+    static StatsHttpProperties mockHttpProperties() {
+        StatsHttpProperties properties = new StatsHttpProperties();
+        properties.setConnectTimeout(null);
+        properties.setReadTimeout(null);
+        return properties;
+    }
+
+    @Benchmark
+    public List<StatsDto> clientGetStats() {
+        return statsClient.getStats(end.minusYears(100), end, uriList, false);
+    }
+
+    @Benchmark
+    public long mergeDaySketches() {
+        HyperLogLog merged = new HyperLogLog(PRECISION);
+        for (byte[] registers : hourSketches) {
+            merged.merge(HyperLogLog.fromBytes(registers));
+        }
+        return merged.estimate();
+    }
+}
@@ -0,0 +1,28 @@
+package ru.practicum.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    // recordStats нужен для метрик cache.gets{result=hit|miss} по каждому региону
+    @Bean
+    public CacheManager cacheManager(EwmCacheProperties properties) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        for (String name : CacheNames.ALL) {
+            EwmCacheProperties.Region region = properties.region(name);
+            cacheManager.registerCustomCache(name, Caffeine.newBuilder()
+                    .maximumSize(region.getMaximumSize())
+                    .expireAfterWrite(region.getExpireAfterWrite())
+                    .recordStats()
+                    .build());
+        }
+        return cacheManager;
+    }
+}
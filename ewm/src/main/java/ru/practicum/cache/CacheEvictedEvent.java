@@ -0,0 +1,7 @@
+package ru.practicum.cache;
+
+/**
+ * Регион уже сброшен локально (по событию этой реплики или по уведомлению другой): id == null - целиком.
+ */
+public record CacheEvictedEvent(String cacheName, Long id) {
+}
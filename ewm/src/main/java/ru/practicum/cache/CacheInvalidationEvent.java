@@ -0,0 +1,14 @@
+package ru.practicum.cache;
+
+/**
+ * Изменение данных, закэшированных в регионе {@code cacheName}: id == null сбрасывает регион целиком.
+ */
+public record CacheInvalidationEvent(String cacheName, Long id) {
+    public static CacheInvalidationEvent of(String cacheName, Long id) {
+        return new CacheInvalidationEvent(cacheName, id);
+    }
+
+    public static CacheInvalidationEvent all(String cacheName) {
+        return new CacheInvalidationEvent(cacheName, null);
+    }
+}
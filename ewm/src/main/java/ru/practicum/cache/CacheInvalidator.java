@@ -0,0 +1,59 @@
+package ru.practicum.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сбрасывает локальные кэши по событиям изменения из админских сервисов.
+ * Сброс идёт после коммита: иначе параллельное чтение успело бы положить в кэш старое значение.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CacheInvalidator {
+    private final CacheManager cacheManager;
+    private final MeterRegistry meterRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    // поколение региона растёт до сброса: значение, собранное до сброса, не кладётся в кэш после него
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInvalidation(CacheInvalidationEvent event) {
+        evict(event, "local");
+    }
+
+    public void evict(CacheInvalidationEvent event, String source) {
+        Cache cache = cacheManager.getCache(event.cacheName());
+        if (cache == null) {
+            log.warn("Неизвестный регион кэша: {}", event.cacheName());
+            return;
+        }
+        generations.computeIfAbsent(event.cacheName(), name -> new AtomicLong()).incrementAndGet();
+        if (event.id() == null) {
+            cache.clear();
+        } else {
+            cache.evict(event.id());
+        }
+        meterRegistry.counter("ewm.cache.invalidations", "cache", event.cacheName(), "source", source).increment();
+        log.debug("Кэш {} сброшен ({}): id={}", event.cacheName(), source, event.id());
+        eventPublisher.publishEvent(new CacheEvictedEvent(event.cacheName(), event.id()));
+    }
+
+    public long generation(String cacheName) {
+        return generations.computeIfAbsent(cacheName, name -> new AtomicLong()).get();
+    }
+
+    public void clearAll(String source) {
+        CacheNames.ALL.forEach(name -> evict(CacheInvalidationEvent.all(name), source));
+    }
+}
@@ -0,0 +1,16 @@
+package ru.practicum.cache;
+
+import java.util.List;
+
+public final class CacheNames {
+    public static final String CATEGORIES = "categories";
+    public static final String CATEGORY_PAGES = "category-pages";
+    public static final String COMPILATIONS = "compilations";
+    public static final String COMPILATION_PAGES = "compilation-pages";
+    public static final String USER_SHORTS = "user-shorts";
+
+    public static final List<String> ALL = List.of(CATEGORIES, CATEGORY_PAGES, COMPILATIONS, COMPILATION_PAGES, USER_SHORTS);
+
+    private CacheNames() {
+    }
+}
@@ -0,0 +1,40 @@
+package ru.practicum.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "ewm.cache")
+public class EwmCacheProperties {
+    // настройки по имени региона из CacheNames, для не перечисленных действуют значения Region по умолчанию
+    private Map<String, Region> regions = new HashMap<>();
+
+    private Invalidation invalidation = new Invalidation();
+
+    public Region region(String name) {
+        return regions.getOrDefault(name, new Region());
+    }
+
+    @Data
+    public static class Region {
+        private long maximumSize = 10_000;
+
+        private Duration expireAfterWrite = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class Invalidation {
+        // none - только локальная инвалидация, postgres - рассылка другим репликам через LISTEN/NOTIFY
+        private String channel = "none";
+
+        private String pgChannel = "ewm_cache";
+
+        private Duration reconnectDelay = Duration.ofSeconds(5);
+    }
+}
@@ -0,0 +1,128 @@
+package ru.practicum.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+
+/**
+ * Рассылка инвалидаций между репликами ewm через LISTEN/NOTIFY в общей базе.
+ * Слушатель держит отдельное соединение вне пула; свои уведомления отбрасываются по идентификатору реплики.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "ewm.cache.invalidation.channel", havingValue = "postgres")
+public class PostgresCacheInvalidationChannel {
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+    private static final String ALL = "*";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final CacheInvalidator cacheInvalidator;
+    private final String channel;
+    private final long reconnectDelayNanos;
+    private final String origin = UUID.randomUUID().toString();
+
+    private Thread listener;
+    private volatile boolean running;
+
+    public PostgresCacheInvalidationChannel(JdbcTemplate jdbcTemplate,
+                                            DataSourceProperties dataSourceProperties,
+                                            CacheInvalidator cacheInvalidator,
+                                            EwmCacheProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.cacheInvalidator = cacheInvalidator;
+        this.channel = properties.getInvalidation().getPgChannel();
+        this.reconnectDelayNanos = properties.getInvalidation().getReconnectDelay().toNanos();
+        // имя канала подставляется в LISTEN как идентификатор, параметром его не передать
+        if (!CHANNEL_NAME.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Некорректное имя канала инвалидации: " + channel);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        listener = new Thread(this::runListenLoop, "ewm-cache-invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        listener.interrupt();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void publish(CacheInvalidationEvent event) {
+        String payload = origin + '|' + event.cacheName() + '|' + (event.id() == null ? ALL : event.id());
+        try {
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> {
+            }, channel, payload);
+        } catch (DataAccessException e) {
+            log.warn("Не удалось разослать инвалидацию кэша {}: {}", payload, e.getMessage());
+        }
+    }
+
+    private void runListenLoop() {
+        boolean reconnect = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                // пока соединения не было, уведомления терялись: сбрасываем всё, что могло устареть
+                if (reconnect) {
+                    cacheInvalidator.clearAll("remote");
+                }
+                log.info("Подписка на инвалидации кэша через канал {}", channel);
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(1000);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            receive(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Канал инвалидации кэша недоступен: {}", e.getMessage());
+                    LockSupport.parkNanos(reconnectDelayNanos);
+                }
+            }
+            reconnect = true;
+        }
+    }
+
+    private void receive(String payload) {
+        String[] parts = payload.split("\\|", 3);
+        if (parts.length != 3 || origin.equals(parts[0])) {
+            return;
+        }
+        try {
+            Long id = ALL.equals(parts[2]) ? null : Long.parseLong(parts[2]);
+            cacheInvalidator.evict(new CacheInvalidationEvent(parts[1], id), "remote");
+        } catch (NumberFormatException e) {
+            log.warn("Некорректное уведомление об инвалидации кэша: {}", payload);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practicum.cache;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.category.model.Category;
+import ru.practicum.users.model.User;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Второй уровень кэша Hibernate живёт в каждой реплике отдельно: правки через Hibernate обновляют его сами,
+ * а правки с других реплик приходят сюда вместе со сбросом соответствующего региона Spring Cache.
+ * Метки обновления таблиц у кэша запросов тоже свои в каждой реплике, поэтому регионы, собранные из кэшируемых
+ * запросов, сбрасывают и результаты запросов.
+ * <p>
+ * Spring Cache сброшен раньше второго уровня, и чтение между сбросами могло положить в него старое значение
+ * из второго уровня, поэтому после сброса второго уровня регион Spring Cache сбрасывается ещё раз.
+ */
+@Component
+@RequiredArgsConstructor
+public class SecondLevelCacheInvalidator {
+    private static final Map<String, Class<?>> ENTITIES = Map.of(
+            CacheNames.CATEGORIES, Category.class,
+            CacheNames.USER_SHORTS, User.class);
+    // регионы Spring Cache, которые заполняются запросами с HINT_CACHEABLE
+    private static final Set<String> QUERY_BACKED = Set.of(CacheNames.CATEGORY_PAGES);
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final CacheManager cacheManager;
+
+    @EventListener
+    public void onEvicted(CacheEvictedEvent event) {
+        Class<?> entity = ENTITIES.get(event.cacheName());
+        boolean queryBacked = QUERY_BACKED.contains(event.cacheName());
+        if (entity == null && !queryBacked) {
+            return;
+        }
+        jakarta.persistence.Cache secondLevel = entityManagerFactory.getCache();
+        if (entity != null && event.id() == null) {
+            secondLevel.evict(entity);
+        } else if (entity != null) {
+            secondLevel.evict(entity, event.id());
+        }
+        if (queryBacked) {
+            secondLevel.unwrap(org.hibernate.Cache.class).evictQueryRegions();
+        }
+        evictAgain(event);
+    }
+
+    private void evictAgain(CacheEvictedEvent event) {
+        Cache cache = cacheManager.getCache(event.cacheName());
+        if (cache == null) {
+            return;
+        }
+        if (event.id() == null) {
+            cache.clear();
+        } else {
+            cache.evict(event.id());
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package ru.practicum.category.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import ru.practicum.cache.CacheInvalidationEvent;
+import ru.practicum.cache.CacheNames;
 import ru.practicum.category.dto.CategoriesMapper;
 import ru.practicum.category.dto.CategoryDto;
 import ru.practicum.category.dto.NewCategoryDto;
@@ -22,7 +26,9 @@ public class CategoriesService {
     private final CategoriesRepository categoriesRepository;
     private final EventRepository eventRepository;
     private final CategoriesMapper categoriesMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
+    @Cacheable(cacheNames = CacheNames.CATEGORY_PAGES, key = "#from + ':' + #size", sync = true)
     public List<CategoryDto> getCategories(Integer from, Integer size) {
         int offset = from > 0 ? from / size : 0;
         PageRequest page = PageRequest.of(offset, size);
@@ -30,6 +36,7 @@ public class CategoriesService {
         return categoriesList.stream().map(categoriesMapper::toDto).collect(Collectors.toList());
     }
 
+    @Cacheable(cacheNames = CacheNames.CATEGORIES, key = "#catId", sync = true)
     public CategoryDto getCategoriesId(Long catId) {
         Category category = getCategoriesIfExist(catId);
         return categoriesMapper.toDto(category);
@@ -43,6 +50,7 @@ public class CategoriesService {
             throw new ValidationException("Слишком длинное имя");
         }
         Category category = categoriesRepository.save(categoriesMapper.toCategory(newCategoryDto));
+        eventPublisher.publishEvent(CacheInvalidationEvent.all(CacheNames.CATEGORY_PAGES));
         return categoriesMapper.toDto(category);
     }
 
@@ -54,6 +62,8 @@ public class CategoriesService {
         }
 
         categoriesRepository.deleteById(catId);
+        eventPublisher.publishEvent(CacheInvalidationEvent.of(CacheNames.CATEGORIES, catId));
+        eventPublisher.publishEvent(CacheInvalidationEvent.all(CacheNames.CATEGORY_PAGES));
     }
 
     public CategoryDto updateCategories(CategoryDto categoryDto) {
@@ -69,9 +79,18 @@ public class CategoriesService {
 
         categories.setName(categoryDto.getName());
         Category updatedCategory = categoriesRepository.save(categories);
+        publishCategoryChanged(updatedCategory.getId());
         return categoriesMapper.toDto(updatedCategory);
     }
 
+    // название категории входит в события подборок, поэтому подборки сбрасываются вместе с ней
+    private void publishCategoryChanged(Long catId) {
+        eventPublisher.publishEvent(CacheInvalidationEvent.of(CacheNames.CATEGORIES, catId));
+        eventPublisher.publishEvent(CacheInvalidationEvent.all(CacheNames.CATEGORY_PAGES));
+        eventPublisher.publishEvent(CacheInvalidationEvent.all(CacheNames.COMPILATIONS));
+        eventPublisher.publishEvent(CacheInvalidationEvent.all(CacheNames.COMPILATION_PAGES));
+    }
+
     private Category getCategoriesIfExist(Long catId) {
         return categoriesRepository.findById(catId).orElseThrow(() -> new NotFoundException("Категория с id=" + catId + " не найдена"));
     }
@@ -4,34 +4,49 @@ import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import ru.practicum.compilation.dto.CompilationDto;
-import ru.practicum.compilation.service.CompilationService;
+import org.springframework.web.context.request.WebRequest;
+import ru.practicum.compilation.service.CompilationResponseCache;
+import ru.practicum.compilation.service.CompilationResponseCache.SerializedResponse;
 
 
-import java.util.List;
-
 @RestController
 @Slf4j
 @RequiredArgsConstructor
 @RequestMapping("/compilations")
 public class PublicCompilationsController {
-    private final CompilationService compilationService;
+    private final CompilationResponseCache compilationResponseCache;
 
     @GetMapping
-    public List<CompilationDto> getCompilations(@RequestParam(required = false) Boolean pinned, @RequestParam(defaultValue = "0") @PositiveOrZero Integer from, @RequestParam(defaultValue = "10") @Positive Integer size) {
+    public ResponseEntity<byte[]> getCompilations(@RequestParam(required = false) Boolean pinned, @RequestParam(defaultValue = "0") @PositiveOrZero Integer from, @RequestParam(defaultValue = "10") @Positive Integer size, WebRequest request) {
         log.info("Получаем список подборок: закрепленные={}, пропустить={}, размер={}", pinned, from, size);
-        return compilationService.getCompilations(pinned, from, size);
+        return toResponse(compilationResponseCache.getCompilations(pinned, from, size), request);
     }
 
     @GetMapping("/{compId}")
-    public CompilationDto getCompilationById(@PathVariable Long compId) {
+    public ResponseEntity<byte[]> getCompilationById(@PathVariable Long compId, WebRequest request) {
         log.info("Ищем подборку id={}", compId);
-        return compilationService.getCompilationById(compId);
+        return toResponse(compilationResponseCache.getCompilation(compId), request);
+    }
+
+    // готовое тело отдаётся как есть; при совпадении If-None-Match - 304 без тела
+    private ResponseEntity<byte[]> toResponse(SerializedResponse response, WebRequest request) {
+        if (request.checkNotModified(response.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(response.etag()).cacheControl(CacheControl.noCache()).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(response.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(response.body());
     }
 
 }
\ No newline at end of file
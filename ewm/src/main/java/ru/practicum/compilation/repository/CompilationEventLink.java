@@ -0,0 +1,7 @@
+package ru.practicum.compilation.repository;
+
+public interface CompilationEventLink {
+    Long getCompilationId();
+
+    Long getEventId();
+}
@@ -1,16 +1,25 @@
 package ru.practicum.compilation.repository;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ru.practicum.compilation.model.Compilation;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface CompilationRepository extends JpaRepository<Compilation, Long> {
-    Page<Compilation> findAllByPinned(Boolean pinned, Pageable pageable);
+    // страницы подборок для публичного API: без count-запроса, события дочитываются отдельно
+    List<Compilation> findPageByPinned(Boolean pinned, Pageable pageable);
+
+    @Query("SELECT c FROM Compilation c")
+    List<Compilation> findPage(Pageable pageable);
+
+    @Query(value = "SELECT ec.compilation_id AS \"compilationId\", ec.event_id AS \"eventId\" " +
+            "FROM events_compilations ec WHERE ec.compilation_id IN (:ids)", nativeQuery = true)
+    List<CompilationEventLink> findEventLinks(@Param("ids") Collection<Long> ids);
 
     boolean existsByTitle(String title);
 
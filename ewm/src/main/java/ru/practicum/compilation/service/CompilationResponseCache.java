@@ -0,0 +1,142 @@
+package ru.practicum.compilation.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import ru.practicum.cache.CacheEvictedEvent;
+import ru.practicum.cache.CacheInvalidator;
+import ru.practicum.cache.CacheNames;
+import ru.practicum.exception.NotFoundException;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Ответы GET /compilations, заранее сериализованные в JSON вместе с ETag.
+ * Лежат в регионах compilations и compilation-pages, поэтому сбрасываются теми же событиями, что и в других
+ * репликах. Недавно запрошенные ответы после сброса пересобираются в фоне, и главная страница не ждёт сборки.
+ */
+@Slf4j
+@Component
+public class CompilationResponseCache {
+    private final CompilationService compilationService;
+    private final ObjectMapper objectMapper;
+    private final Executor executor;
+    private final CacheInvalidator cacheInvalidator;
+    private final Cache compilations;
+    private final Cache compilationPages;
+    private final com.github.benmanes.caffeine.cache.Cache<HotKey, Boolean> hotKeys;
+
+    public CompilationResponseCache(CompilationService compilationService,
+                                    ObjectMapper objectMapper,
+                                    CacheManager cacheManager,
+                                    CacheInvalidator cacheInvalidator,
+                                    @Qualifier("applicationTaskExecutor") Executor executor,
+                                    @Value("${ewm.compilations.response.hot-keys:100}") long hotKeysSize,
+                                    @Value("${ewm.compilations.response.hot-key-idle:10m}") Duration hotKeyIdle) {
+        this.compilationService = compilationService;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.cacheInvalidator = cacheInvalidator;
+        this.compilations = cacheManager.getCache(CacheNames.COMPILATIONS);
+        this.compilationPages = cacheManager.getCache(CacheNames.COMPILATION_PAGES);
+        this.hotKeys = Caffeine.newBuilder()
+                .maximumSize(hotKeysSize)
+                .expireAfterAccess(hotKeyIdle)
+                .build();
+    }
+
+    public SerializedResponse getCompilation(Long compId) {
+        return get(new HotKey(CacheNames.COMPILATIONS, compId));
+    }
+
+    public SerializedResponse getCompilations(Boolean pinned, Integer from, Integer size) {
+        return get(new HotKey(CacheNames.COMPILATION_PAGES, new PageKey(pinned, from, size)));
+    }
+
+    @EventListener
+    public void onEvicted(CacheEvictedEvent event) {
+        if (!CacheNames.COMPILATIONS.equals(event.cacheName()) && !CacheNames.COMPILATION_PAGES.equals(event.cacheName())) {
+            return;
+        }
+        for (HotKey key : hotKeys.asMap().keySet()) {
+            if (key.cacheName().equals(event.cacheName()) && (event.id() == null || event.id().equals(key.key()))) {
+                executor.execute(() -> rebuild(key));
+            }
+        }
+    }
+
+    private SerializedResponse get(HotKey key) {
+        hotKeys.put(key, Boolean.TRUE);
+        Cache.ValueWrapper cached = cacheOf(key).get(key.key());
+        if (cached != null) {
+            return (SerializedResponse) cached.get();
+        }
+        return build(key);
+    }
+
+    private void rebuild(HotKey key) {
+        try {
+            build(key);
+        } catch (NotFoundException e) {
+            hotKeys.invalidate(key);
+        } catch (Exception e) {
+            log.warn("Не удалось пересобрать ответ подборок {}: {}", key, e.getMessage());
+        }
+    }
+
+    // поколение сверяется внутри compute: сброс ключа ждёт его завершения, а поколение растёт до сброса,
+    // поэтому ответ, собранный до сброса, либо не кладётся, либо удаляется этим сбросом.
+    // Сброс всего региона обходит map без блокировок и может не увидеть ключ, вставленный во время обхода,
+    // поэтому после вставки поколение сверяется ещё раз: если сброс уже начался, свой ответ убирается
+    private SerializedResponse build(HotKey key) {
+        long generation = cacheInvalidator.generation(key.cacheName());
+        SerializedResponse response = serialize(load(key));
+        ConcurrentMap<Object, Object> entries = ((CaffeineCache) cacheOf(key)).getNativeCache().asMap();
+        entries.compute(key.key(), (k, current) ->
+                cacheInvalidator.generation(key.cacheName()) == generation ? response : current);
+        if (cacheInvalidator.generation(key.cacheName()) != generation) {
+            entries.remove(key.key(), response);
+        }
+        return response;
+    }
+
+    private Object load(HotKey key) {
+        if (key.key() instanceof PageKey page) {
+            return compilationService.getCompilations(page.pinned(), page.from(), page.size());
+        }
+        return compilationService.getCompilationById((Long) key.key());
+    }
+
+    private SerializedResponse serialize(Object value) {
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(value);
+            return new SerializedResponse(body, "\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать подборки", e);
+        }
+    }
+
+    private Cache cacheOf(HotKey key) {
+        return CacheNames.COMPILATIONS.equals(key.cacheName()) ? compilations : compilationPages;
+    }
+
+    public record SerializedResponse(byte[] body, String etag) {
+    }
+
+    private record HotKey(String cacheName, Object key) {
+    }
+
+    private record PageKey(Boolean pinned, Integer from, Integer size) {
+    }
+}
@@ -1,15 +1,21 @@
 package ru.practicum.compilation.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.cache.CacheInvalidationEvent;
+import ru.practicum.cache.CacheNames;
+import ru.practicum.category.dto.CategoriesMapper;
 import ru.practicum.compilation.dto.CompilationDto;
 import ru.practicum.compilation.dto.CompilationMapper;
 import ru.practicum.compilation.dto.NewCompilationDto;
 import ru.practicum.compilation.dto.UpdateCompilationRequest;
 import ru.practicum.compilation.model.Compilation;
+import ru.practicum.compilation.repository.CompilationEventLink;
 import ru.practicum.compilation.repository.CompilationRepository;
-import ru.practicum.category.dto.CategoriesMapper;
 import ru.practicum.event.dto.EventShortDto;
 import ru.practicum.event.mapper.EventMapper;
 import ru.practicum.event.model.Event;
@@ -18,8 +24,12 @@ import ru.practicum.exception.NotFoundException;
 import ru.practicum.exception.ValidationException;
 import ru.practicum.users.dto.UserMapper;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -32,6 +42,7 @@ public class CompilationService  {
     private final EventMapper eventMapper;
     private final CategoriesMapper categoriesMapper;
     private final UserMapper userMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     public CompilationDto createCompilation(NewCompilationDto newCompilationDto) {
         if (compilationRepository.existsByTitle(newCompilationDto.getTitle())) {
@@ -46,13 +57,15 @@ public class CompilationService  {
         }
 
         Compilation savedCompilation = compilationRepository.save(compilation);
+        eventPublisher.publishEvent(CacheInvalidationEvent.all(CacheNames.COMPILATION_PAGES));
 
-        return convertToDtoWithEvents(savedCompilation);
+        return toDtos(List.of(savedCompilation)).get(0);
     }
 
     public void deleteCompilation(Long compId) {
         Compilation compilation = getCompilationIfExists(compId);
         compilationRepository.delete(compilation);
+        publishCompilationChanged(compId);
     }
 
     public CompilationDto updateCompilation(Long compId, UpdateCompilationRequest updateRequest) {
@@ -75,40 +88,62 @@ public class CompilationService  {
         }
 
         Compilation updatedCompilation = compilationRepository.save(compilation);
+        publishCompilationChanged(compId);
 
-        return convertToDtoWithEvents(updatedCompilation);
+        return toDtos(List.of(updatedCompilation)).get(0);
     }
 
+    @Transactional(readOnly = true)
     public List<CompilationDto> getCompilations(Boolean pinned, Integer from, Integer size) {
-        PageRequest page = PageRequest.of(from / size, size);
-
-        List<Compilation> compilations;
-        if (pinned != null) {
-            compilations = compilationRepository.findAllByPinned(pinned, page).getContent();
-        } else {
-            compilations = compilationRepository.findAll(page).getContent();
-        }
+        PageRequest page = PageRequest.of(from / size, size, Sort.by("id"));
 
-        return compilations.stream()
-                .map(this::convertToDtoWithEvents)
-                .collect(Collectors.toList());
+        List<Compilation> compilations = pinned != null
+                ? compilationRepository.findPageByPinned(pinned, page)
+                : compilationRepository.findPage(page);
+        return toDtos(compilations);
     }
 
+    @Transactional(readOnly = true)
     public CompilationDto getCompilationById(Long compId) {
         Compilation compilation = getCompilationIfExists(compId);
-        return convertToDtoWithEvents(compilation);
+        return toDtos(List.of(compilation)).get(0);
     }
 
-    private CompilationDto convertToDtoWithEvents(Compilation compilation) {
-        Set<EventShortDto> eventDtos = compilation.getEvents().stream()
-                .map(event -> eventMapper.toShortDto(
-                        event,
-                        categoriesMapper.toDto(event.getCategory()),
-                        userMapper.toShortDto(event.getInitiator())
-                ))
+    // события всех подборок страницы читаются двумя запросами вместо ленивой загрузки по каждой подборке и событию
+    private List<CompilationDto> toDtos(List<Compilation> compilations) {
+        if (compilations.isEmpty()) {
+            return List.of();
+        }
+        List<Long> compilationIds = compilations.stream().map(Compilation::getId).toList();
+        Map<Long, List<Long>> eventIdsByCompilation = new HashMap<>();
+        for (CompilationEventLink link : compilationRepository.findEventLinks(compilationIds)) {
+            eventIdsByCompilation.computeIfAbsent(link.getCompilationId(), id -> new ArrayList<>()).add(link.getEventId());
+        }
+
+        Set<Long> eventIds = eventIdsByCompilation.values().stream()
+                .flatMap(List::stream)
                 .collect(Collectors.toSet());
+        Map<Long, EventShortDto> events = eventIds.isEmpty() ? Map.of() :
+                eventRepository.findAllWithCategoryAndInitiator(eventIds).stream()
+                        .collect(Collectors.toMap(Event::getId, event -> eventMapper.toShortDto(
+                                event,
+                                categoriesMapper.toDto(event.getCategory()),
+                                userMapper.toShortDto(event.getInitiator()))));
+
+        return compilations.stream()
+                .map(compilation -> {
+                    Set<EventShortDto> eventDtos = eventIdsByCompilation.getOrDefault(compilation.getId(), List.of()).stream()
+                            .sorted()
+                            .map(events::get)
+                            .collect(Collectors.toCollection(LinkedHashSet::new));
+                    return compilationMapper.toCompilationDto(compilation, eventDtos);
+                })
+                .toList();
+    }
 
-        return compilationMapper.toCompilationDto(compilation, eventDtos);
+    private void publishCompilationChanged(Long compId) {
+        eventPublisher.publishEvent(CacheInvalidationEvent.of(CacheNames.COMPILATIONS, compId));
+        eventPublisher.publishEvent(CacheInvalidationEvent.all(CacheNames.COMPILATION_PAGES));
     }
 
     private Compilation getCompilationIfExists(Long compId) {
@@ -6,6 +6,7 @@ import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -13,6 +14,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import ru.practicum.event.dto.EventFullDto;
+import ru.practicum.event.dto.EventFullResult;
+import ru.practicum.event.dto.EventSearchResult;
 import ru.practicum.event.dto.EventShortDto;
 import ru.practicum.event.service.EventService;
 
@@ -26,10 +29,13 @@ import java.util.List;
 @RequestMapping("/events")
 @Validated
 public class EventPublicController {
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String VIEWS_STALE_HEADER = "X-Views-Stale";
+
     private final EventService eventService;
 
     @GetMapping
-    public List<EventShortDto> getEventsPublic(
+    public ResponseEntity<List<EventShortDto>> getEventsPublic(
             @RequestParam(required = false) String text,
             @RequestParam(required = false) List<Long> categories,
             @RequestParam(required = false) Boolean paid,
@@ -37,21 +43,30 @@ public class EventPublicController {
             @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeEnd,
             @RequestParam(defaultValue = "false") Boolean onlyAvailable,
             @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String after,
             @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
             @RequestParam(defaultValue = "10") @Positive Integer size,
             HttpServletRequest request) {
-        log.info("Публичный поиск событий: text={}, categories={}, paid={}, rangeStart={}, rangeEnd={}, onlyAvailable={}, sort={}, from={}, size={}",
-                text, categories, paid, rangeStart, rangeEnd, onlyAvailable, sort, from, size);
+        log.info("Публичный поиск событий: text={}, categories={}, paid={}, rangeStart={}, rangeEnd={}, onlyAvailable={}, sort={}, after={}, from={}, size={}",
+                text, categories, paid, rangeStart, rangeEnd, onlyAvailable, sort, after, from, size);
 
         String clientIp = request.getRemoteAddr();
         String endpoint = request.getRequestURI();
 
-        return eventService.getEventsPublic(text, categories, paid, rangeStart, rangeEnd,
-                onlyAvailable, sort, from, size, clientIp, endpoint);
+        EventSearchResult result = eventService.getEventsPublic(text, categories, paid, rangeStart, rangeEnd,
+                onlyAvailable, sort, after, from, size, clientIp, endpoint);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (result.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, result.getNextCursor());
+        }
+        if (result.isViewsStale()) {
+            response.header(VIEWS_STALE_HEADER, "true");
+        }
+        return response.body(result.getEvents());
     }
 
     @GetMapping("/{id}")
-    public EventFullDto getEventPublic(
+    public ResponseEntity<EventFullDto> getEventPublic(
             @PathVariable Long id,
             HttpServletRequest request) {
         log.info("Получение публичного события с id: {}", id);
@@ -59,6 +74,10 @@ public class EventPublicController {
         String clientIp = request.getRemoteAddr();
         String endpoint = request.getRequestURI();
 
-        return eventService.getEventPublic(id, clientIp, endpoint);
+        EventFullResult result = eventService.getEventPublic(id, clientIp, endpoint);
+        if (result.isViewsStale()) {
+            return ResponseEntity.ok().header(VIEWS_STALE_HEADER, "true").body(result.getEvent());
+        }
+        return ResponseEntity.ok(result.getEvent());
     }
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package ru.practicum.event.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.model.SortEvents;
+import ru.practicum.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.regex.Pattern;
+
+@Getter
+@AllArgsConstructor
+public class EventCursor {
+    private static final String SEPARATOR = "|";
+    private static final String BY_ID = "ID";
+
+    private final SortEvents sort;
+    private final String value;
+    private final Long id;
+
+    public static EventCursor after(SortEvents sort, Event event) {
+        String value;
+        if (sort == SortEvents.EVENT_DATE) {
+            value = event.getEventDate().toString();
+        } else if (sort == SortEvents.VIEWS) {
+            value = event.getViews().toString();
+        } else {
+            value = "";
+        }
+        return new EventCursor(sort, value, event.getId());
+    }
+
+    public static EventCursor decode(String cursor, SortEvents sort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(Pattern.quote(SEPARATOR), -1);
+            String expectedSort = sort == null ? BY_ID : sort.name();
+            if (parts.length != 3 || !parts[0].equals(expectedSort)) {
+                throw new ValidationException("Курсор after не соответствует параметру sort");
+            }
+            EventCursor decoded = new EventCursor(sort, parts[1], Long.parseLong(parts[2]));
+            decoded.validate();
+            return decoded;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ValidationException("Некорректный курсор after: " + cursor);
+        }
+    }
+
+    public String encode() {
+        String raw = (sort == null ? BY_ID : sort.name()) + SEPARATOR + value + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getEventDate() {
+        return LocalDateTime.parse(value);
+    }
+
+    public Long getViews() {
+        return Long.parseLong(value);
+    }
+
+    private void validate() {
+        if (sort == SortEvents.EVENT_DATE) {
+            getEventDate();
+        } else if (sort == SortEvents.VIEWS) {
+            getViews();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package ru.practicum.event.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class EventFullResult {
+    private EventFullDto event;
+
+    private boolean viewsStale;
+}
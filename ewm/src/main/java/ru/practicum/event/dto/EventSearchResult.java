@@ -0,0 +1,16 @@
+package ru.practicum.event.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class EventSearchResult {
+    private List<EventShortDto> events;
+
+    private String nextCursor;
+
+    private boolean viewsStale;
+}
@@ -8,6 +8,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -23,7 +24,10 @@ import ru.practicum.users.model.User;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "events")
+@Table(name = "events", indexes = {
+        @Index(name = "idx_events_state_event_date", columnList = "state, event_date, id"),
+        @Index(name = "idx_events_state_views", columnList = "state, views, id")
+})
 @Getter
 @Setter
 @Builder
@@ -79,11 +83,14 @@ public class Event {
     @Column
     private LocalDateTime publishedOn;
 
-    @Column(nullable = false)
+    // счётчик меняется только атомарными UPDATE в EventRepository
+    @Column(nullable = false, updatable = false)
     @Builder.Default
     private Long confirmedRequests = 0L;
 
-    @Column(nullable = false)
+    // как и confirmedRequests: меняется только атомарными UPDATE в EventViewsBatchRepository,
+    // иначе save() события затёр бы окно, применённое синхронизацией после чтения строки
+    @Column(nullable = false, updatable = false)
     @Builder.Default
     private Long views = 0L;
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package ru.practicum.event.model;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -7,9 +8,14 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "locations")
+@Cacheable
+// при правке события сохраняется новая локация, старые строки не меняются
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "location")
 @Data
 @Builder
 @NoArgsConstructor
@@ -2,5 +2,6 @@ package ru.practicum.event.model;
 
 public enum SortEvents {
     EVENT_DATE,
-    VIEWS
+    VIEWS,
+    RELEVANCE
 }
\ No newline at end of file
@@ -4,11 +4,14 @@ package ru.practicum.event.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.event.model.Event;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,13 +25,53 @@ public interface EventRepository extends JpaRepository<Event, Long> {
 
     @Query(value = """
             SELECT e FROM Event e
+            JOIN FETCH e.category JOIN FETCH e.initiator JOIN FETCH e.location
             WHERE e.id = :id AND e.state = 'PUBLISHED'
             """)
     Optional<Event> findPublishedById(@Param("id") Long id);
 
+    @Query("SELECT e FROM Event e JOIN FETCH e.category JOIN FETCH e.initiator WHERE e.id IN :ids")
+    List<Event> findAllWithCategoryAndInitiator(@Param("ids") Collection<Long> ids);
 
-    @Query(value = "SELECT e.* FROM events e " + "WHERE e.state = 'PUBLISHED' " + "AND ((:text) IS NULL OR LOWER(e.annotation) LIKE LOWER(CONCAT('%', :text, '%')) " + "     OR LOWER(e.description) LIKE LOWER(CONCAT('%', :text, '%'))) " + "AND ((:categories) IS NULL OR e.category_id IN (:categories)) " + "AND ((:paid) IS NULL OR e.paid = (:paid)) " + "AND (cast(:rangeStart as text) is null or e.event_date >= cast(cast(:rangeStart as text) as timestamp)) " + "AND (cast(:rangeEnd as text) is null or e.event_date <= cast(cast(:rangeEnd as text) as timestamp)) " + "AND (:onlyAvailable = false OR e.participant_limit = 0 " + "     OR (SELECT COUNT(pr.id) FROM requests pr " + "         WHERE pr.event_id = e.id AND pr.status = 'CONFIRMED') < e.participant_limit)", nativeQuery = true)
-    Page<Event> findPublicEvents(@Param("text") String text, @Param("categories") List<Long> categories, @Param("paid") Boolean paid, @Param("rangeStart") LocalDateTime rangeStart, @Param("rangeEnd") LocalDateTime rangeEnd, @Param("onlyAvailable") Boolean onlyAvailable, Pageable pageable);
+
+    String PUBLIC_EVENTS_FILTER = "WHERE e.state = 'PUBLISHED' " + "AND (cast(:query as text) IS NULL OR e.search_vector @@ to_tsquery('simple', cast(:query as text))) " + "AND ((:categories) IS NULL OR e.category_id IN (:categories)) " + "AND ((:paid) IS NULL OR e.paid = (:paid)) " + "AND (cast(:rangeStart as text) is null or e.event_date >= cast(cast(:rangeStart as text) as timestamp)) " + "AND (cast(:rangeEnd as text) is null or e.event_date <= cast(cast(:rangeEnd as text) as timestamp)) " + "AND (:onlyAvailable = false OR e.participant_limit = 0 OR e.confirmed_requests < e.participant_limit) ";
+
+    @Query(value = "SELECT e.* FROM events e " + PUBLIC_EVENTS_FILTER, nativeQuery = true)
+    List<Event> findPublicEvents(@Param("query") String query, @Param("categories") List<Long> categories, @Param("paid") Boolean paid, @Param("rangeStart") LocalDateTime rangeStart, @Param("rangeEnd") LocalDateTime rangeEnd, @Param("onlyAvailable") Boolean onlyAvailable, Pageable pageable);
+
+    @Query(value = "SELECT e.* FROM events e " + PUBLIC_EVENTS_FILTER + "AND e.search_vector @@ to_tsquery('simple', cast(:query as text)) " + "ORDER BY ts_rank(e.search_vector, to_tsquery('simple', cast(:query as text))) DESC, e.id", nativeQuery = true)
+    List<Event> findPublicEventsByRelevance(@Param("query") String query, @Param("categories") List<Long> categories, @Param("paid") Boolean paid, @Param("rangeStart") LocalDateTime rangeStart, @Param("rangeEnd") LocalDateTime rangeEnd, @Param("onlyAvailable") Boolean onlyAvailable, Pageable pageable);
+
+    @Query(value = "SELECT e.* FROM events e " + PUBLIC_EVENTS_FILTER + "AND e.id > :afterId " + "ORDER BY e.id", nativeQuery = true)
+    List<Event> findPublicEventsAfterId(@Param("query") String query, @Param("categories") List<Long> categories, @Param("paid") Boolean paid, @Param("rangeStart") LocalDateTime rangeStart, @Param("rangeEnd") LocalDateTime rangeEnd, @Param("onlyAvailable") Boolean onlyAvailable, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(value = "SELECT e.* FROM events e " + PUBLIC_EVENTS_FILTER + "AND (e.event_date, e.id) < (cast(cast(:afterDate as text) as timestamp), :afterId) " + "ORDER BY e.event_date DESC, e.id DESC", nativeQuery = true)
+    List<Event> findPublicEventsAfterEventDate(@Param("query") String query, @Param("categories") List<Long> categories, @Param("paid") Boolean paid, @Param("rangeStart") LocalDateTime rangeStart, @Param("rangeEnd") LocalDateTime rangeEnd, @Param("onlyAvailable") Boolean onlyAvailable, @Param("afterDate") LocalDateTime afterDate, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(value = "SELECT e.* FROM events e " + PUBLIC_EVENTS_FILTER + "AND (e.views, e.id) < (:afterViews, :afterId) " + "ORDER BY e.views DESC, e.id DESC", nativeQuery = true)
+    List<Event> findPublicEventsAfterViews(@Param("query") String query, @Param("categories") List<Long> categories, @Param("paid") Boolean paid, @Param("rangeStart") LocalDateTime rangeStart, @Param("rangeEnd") LocalDateTime rangeEnd, @Param("onlyAvailable") Boolean onlyAvailable, @Param("afterViews") Long afterViews, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE events SET confirmed_requests = confirmed_requests + :delta WHERE id = :id", nativeQuery = true)
+    int addConfirmedRequests(@Param("id") Long id, @Param("delta") long delta);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE events SET confirmed_requests = confirmed_requests + :count " + "WHERE id = :id AND (participant_limit = 0 OR confirmed_requests + :count <= participant_limit)", nativeQuery = true)
+    int reserveConfirmedRequests(@Param("id") Long id, @Param("count") long count);
+
+    @Query(value = "SELECT confirmed_requests FROM events WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Long lockConfirmedRequests(@Param("id") Long id);
+
+    // только кандидаты на сверку: снимок без блокировок, расхождение перепроверяется под блокировкой строки события
+    @Query(value = "SELECT e.id FROM events e " + "LEFT JOIN (SELECT event_id, COUNT(*) AS confirmed FROM requests " + "      WHERE status = 'CONFIRMED' GROUP BY event_id) c ON c.event_id = e.id " + "WHERE e.confirmed_requests <> COALESCE(c.confirmed, 0)", nativeQuery = true)
+    List<Long> findConfirmedRequestsDrift();
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE events SET confirmed_requests = :confirmed WHERE id = :id", nativeQuery = true)
+    int setConfirmedRequests(@Param("id") Long id, @Param("confirmed") long confirmed);
 
     @Query("SELECT e FROM Event e WHERE e.id IN :ids ORDER BY CASE WHEN :sort = 'VIEWS' THEN e.views ELSE 0 END DESC, e.eventDate DESC")
     List<Event> findByIdsSorted(@Param("ids") List<Long> ids, @Param("sort") String sort);
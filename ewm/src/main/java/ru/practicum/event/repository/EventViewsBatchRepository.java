@@ -0,0 +1,58 @@
+package ru.practicum.event.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class EventViewsBatchRepository {
+    private static final String SET_VIEWS = "UPDATE events SET views = ? WHERE id = ? AND views <> ?";
+    private static final String RAISE_VIEWS = "UPDATE events SET views = ? WHERE id = ? AND views < ?";
+    private static final String ADD_VIEWS = "UPDATE events SET views = views + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public int setViews(Map<Long, Long> views) {
+        if (views.isEmpty()) {
+            return 0;
+        }
+        List<Map.Entry<Long, Long>> rows = new ArrayList<>(views.entrySet());
+        int[][] updated = jdbcTemplate.batchUpdate(SET_VIEWS, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, row.getValue());
+            ps.setLong(2, row.getKey());
+            ps.setLong(3, row.getValue());
+        });
+        return Arrays.stream(updated).flatMapToInt(Arrays::stream).map(count -> Math.max(count, 0)).sum();
+    }
+
+    public int raiseViews(Map<Long, Long> views) {
+        if (views.isEmpty()) {
+            return 0;
+        }
+        List<Map.Entry<Long, Long>> rows = new ArrayList<>(views.entrySet());
+        int[][] updated = jdbcTemplate.batchUpdate(RAISE_VIEWS, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, row.getValue());
+            ps.setLong(2, row.getKey());
+            ps.setLong(3, row.getValue());
+        });
+        return Arrays.stream(updated).flatMapToInt(Arrays::stream).map(count -> Math.max(count, 0)).sum();
+    }
+
+    public int addViews(Map<Long, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+        List<Map.Entry<Long, Long>> rows = new ArrayList<>(deltas.entrySet());
+        int[][] updated = jdbcTemplate.batchUpdate(ADD_VIEWS, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, row.getValue());
+            ps.setLong(2, row.getKey());
+        });
+        return Arrays.stream(updated).flatMapToInt(Arrays::stream).map(count -> Math.max(count, 0)).sum();
+    }
+}
@@ -0,0 +1,73 @@
+package ru.practicum.event.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.event.repository.EventRepository;
+import ru.practicum.request.model.RequestStatus;
+import ru.practicum.request.repository.RequestRepository;
+
+import java.util.List;
+
+/**
+ * Сверка счётчика confirmed_requests с таблицей requests. Каждое событие исправляется в своей транзакции:
+ * сначала блокируется строка события, как при резервировании места, и только потом считаются заявки.
+ * Так резервирование, закоммиченное между подсчётом и записью, не затирается старым значением.
+ */
+@Slf4j
+@Component
+public class ConfirmedRequestsReconciler {
+    private final EventRepository eventRepository;
+    private final RequestRepository requestRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter repairedCounter;
+
+    public ConfirmedRequestsReconciler(EventRepository eventRepository,
+                                       RequestRepository requestRepository,
+                                       TransactionTemplate transactionTemplate,
+                                       MeterRegistry meterRegistry) {
+        this.eventRepository = eventRepository;
+        this.requestRepository = requestRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.repairedCounter = Counter.builder("ewm.confirmed.requests.repaired")
+                .description("События, у которых счётчик подтверждённых заявок разошёлся с таблицей requests")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${ewm.confirmed-requests.reconcile-interval:PT5M}",
+            fixedDelayString = "${ewm.confirmed-requests.reconcile-interval:PT5M}")
+    public void reconcile() {
+        try {
+            List<Long> candidates = eventRepository.findConfirmedRequestsDrift();
+            int repaired = 0;
+            for (Long eventId : candidates) {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> repair(eventId)))) {
+                    repaired++;
+                }
+            }
+            if (repaired > 0) {
+                repairedCounter.increment(repaired);
+                log.warn("Исправлен счётчик подтверждённых заявок у {} событий", repaired);
+            }
+        } catch (Exception e) {
+            log.error("Ошибка сверки счётчика подтверждённых заявок: {}", e.getMessage());
+        }
+    }
+
+    private boolean repair(Long eventId) {
+        Long counted = eventRepository.lockConfirmedRequests(eventId);
+        if (counted == null) {
+            return false;
+        }
+        // подсчёт отдельным запросом после блокировки видит все закоммиченные резервирования
+        long actual = requestRepository.countByEventIdAndStatus(eventId, RequestStatus.CONFIRMED);
+        if (counted == actual) {
+            return false;
+        }
+        eventRepository.setConfirmedRequests(eventId, actual);
+        return true;
+    }
+}
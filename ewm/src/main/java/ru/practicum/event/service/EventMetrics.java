@@ -0,0 +1,48 @@
+package ru.practicum.event.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import ru.practicum.exception.ConflictException;
+import ru.practicum.exception.NotFoundException;
+import ru.practicum.exception.ValidationException;
+import ru.practicum.metrics.TimedCalls;
+
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Таймеры горячих путей событий. Тег outcome отделяет отказы (not_found, conflict, invalid) от ответов,
+ * а degraded - ответы с последними известными просмотрами, когда сервис статистики не ответил вовремя.
+ */
+@Component
+@RequiredArgsConstructor
+public class EventMetrics {
+    private final MeterRegistry meterRegistry;
+
+    public <T> T record(String name, Tags tags, Supplier<T> action) {
+        return record(name, tags, action, result -> false);
+    }
+
+    public <T> T record(String name, Tags tags, Supplier<T> action, Predicate<T> degraded) {
+        return TimedCalls.record(meterRegistry, Timer.builder(name).tags(tags), action,
+                result -> degraded.test(result) ? "degraded" : TimedCalls.SUCCESS,
+                EventMetrics::outcomeOf);
+    }
+
+    private static String outcomeOf(RuntimeException e) {
+        if (e instanceof NotFoundException) {
+            return "not_found";
+        }
+        if (e instanceof ConflictException || e instanceof DataIntegrityViolationException) {
+            return "conflict";
+        }
+        if (e instanceof ValidationException || e instanceof IllegalArgumentException) {
+            return "invalid";
+        }
+        return TimedCalls.ERROR;
+    }
+}
@@ -1,24 +1,30 @@
 package ru.practicum.event.service;
 
+import io.micrometer.core.instrument.Tags;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.cache.CacheInvalidationEvent;
+import ru.practicum.cache.CacheNames;
 import ru.practicum.category.dto.CategoriesMapper;
 import ru.practicum.category.model.Category;
 import ru.practicum.category.repository.CategoriesRepository;
+import ru.practicum.category.service.CategoriesService;
 import ru.practicum.controller.StatsClient;
 import ru.practicum.dto.HitDto;
-import ru.practicum.dto.StatsDto;
 import ru.practicum.event.dto.*;
 import ru.practicum.event.mapper.EventMapper;
 import ru.practicum.event.mapper.LocationMapper;
 import ru.practicum.event.model.Event;
 import ru.practicum.event.model.Location;
+import ru.practicum.event.model.SortEvents;
 import ru.practicum.event.model.State;
 import ru.practicum.event.repository.EventRepository;
 import ru.practicum.event.repository.LocationRepository;
@@ -32,9 +38,11 @@ import ru.practicum.request.dto.RequestMapper;
 import ru.practicum.request.model.ParticipationRequest;
 import ru.practicum.request.model.RequestStatus;
 import ru.practicum.request.repository.RequestRepository;
+import ru.practicum.stats.EventViewsCache;
 import ru.practicum.users.dto.UserMapper;
 import ru.practicum.users.model.User;
 import ru.practicum.users.repository.UserRepository;
+import ru.practicum.users.service.UserService;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -56,6 +64,11 @@ public class EventService {
     private final LocationMapper locationMapper;
     private final StatsClient statsClient;
     private final RequestMapper requestMapper;
+    private final EventViewsCache eventViewsCache;
+    private final CategoriesService categoriesService;
+    private final UserService userService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EventMetrics eventMetrics;
 
     @PersistenceContext
     private EntityManager em;
@@ -95,6 +108,7 @@ public class EventService {
         return eventMapper.toFullDto(savedEvent, categoriesMapper.toDto(category), userMapper.toShortDto(user), locationMapper.toLocationDto(savedLocation));
     }
 
+    @Transactional(readOnly = true)
     public EventFullDto getEventByUser(Long userId, Long eventId) {
         User user = getUserById(userId);
         Event event = getEventById(eventId);
@@ -104,6 +118,7 @@ public class EventService {
         return eventMapper.toFullDto(event, categoriesMapper.toDto(event.getCategory()), userMapper.toShortDto(user), locationMapper.toLocationDto(event.getLocation()));
     }
 
+    @Transactional
     public EventFullDto updateEventByUser(Long userId, Long eventId, UpdateEventUserRequest updateEventUserRequest) {
         User user = getUserById(userId);
         Event event = getEventById(eventId);
@@ -152,6 +167,7 @@ public class EventService {
         }
 
         Event updatedEvent = eventRepository.save(event);
+        publishEventChanged();
         return eventMapper.toFullDto(updatedEvent, categoriesMapper.toDto(updatedEvent.getCategory()), userMapper.toShortDto(updatedEvent.getInitiator()), locationMapper.toLocationDto(updatedEvent.getLocation()));
     }
 
@@ -168,7 +184,13 @@ public class EventService {
         return requests.stream().map(requestMapper::toDto).collect(Collectors.toList());
     }
 
+    @Transactional
     public EventRequestStatusUpdateResult updateEventRequests(Long userId, Long eventId, EventRequestStatusUpdateRequest request) {
+        return eventMetrics.record("ewm.events.requests.update", Tags.empty(),
+                () -> changeRequestsStatus(userId, eventId, request));
+    }
+
+    private EventRequestStatusUpdateResult changeRequestsStatus(Long userId, Long eventId, EventRequestStatusUpdateRequest request) {
         if (request == null || request.getRequestIds() == null || request.getRequestIds().isEmpty() || request.getStatus() == null || request.getStatus().isEmpty()) {
             throw new ValidationException("Некорректное тело запроса или отсутствующие данные");
         }
@@ -180,7 +202,10 @@ public class EventService {
             throw new NotFoundException("Событие не принадлежит пользователю");
         }
 
-        if ("CONFIRMED".equals(request.getStatus()) && event.getParticipantLimit() > 0 && event.getConfirmedRequests() >= event.getParticipantLimit()) {
+        // блокировка строки события сериализует подтверждения и новые заявки на это событие
+        long confirmed = eventRepository.lockConfirmedRequests(eventId);
+
+        if ("CONFIRMED".equals(request.getStatus()) && event.getParticipantLimit() > 0 && confirmed >= event.getParticipantLimit()) {
             throw new ConflictException("Достигнут лимит участников");
         }
 
@@ -199,7 +224,7 @@ public class EventService {
         List<ParticipationRequest> toSave = new ArrayList<>();
 
         if ("CONFIRMED".equals(request.getStatus())) {
-            int availableSlots = event.getParticipantLimit() - event.getConfirmedRequests().intValue();
+            int availableSlots = event.getParticipantLimit() == 0 ? requests.size() : event.getParticipantLimit() - (int) confirmed;
             int toConfirm = Math.min(availableSlots, requests.size());
 
             for (int i = 0; i < toConfirm; i++) {
@@ -218,8 +243,7 @@ public class EventService {
 
             requestRepository.saveAll(toSave);
 
-            event.setConfirmedRequests(event.getConfirmedRequests() + toConfirm);
-            eventRepository.save(event);
+            eventRepository.addConfirmedRequests(event.getId(), toConfirm);
 
         } else if ("REJECTED".equals(request.getStatus())) {
             for (ParticipationRequest req : requests) {
@@ -233,6 +257,7 @@ public class EventService {
         return result;
     }
 
+    @Transactional(readOnly = true)
     public List<EventFullDto> getEventsByAdmin(List<Long> users, List<State> states, List<Long> categories, LocalDateTime rangeStart, LocalDateTime rangeEnd, Integer from, Integer size) {
         Pageable pageable = PageRequest.of(from / size, size, Sort.by("id").ascending());
 
@@ -247,6 +272,7 @@ public class EventService {
         return events.stream().map(event -> eventMapper.toFullDto(event, categoriesMapper.toDto(event.getCategory()), userMapper.toShortDto(event.getInitiator()), locationMapper.toLocationDto(event.getLocation()))).collect(Collectors.toList());
     }
 
+    @Transactional
     public EventFullDto updateEventByAdmin(Long eventId, UpdateEventAdminRequest updateEventAdminRequest) {
         Event event = getEventById(eventId);
 
@@ -289,21 +315,38 @@ public class EventService {
         }
 
         Event updatedEvent = eventRepository.save(event);
+        publishEventChanged();
         return eventMapper.toFullDto(updatedEvent, categoriesMapper.toDto(updatedEvent.getCategory()), userMapper.toShortDto(updatedEvent.getInitiator()), locationMapper.toLocationDto(updatedEvent.getLocation()));
     }
 
+    // события входят в подборки целиком, поэтому их правка сбрасывает закэшированные подборки
+    private void publishEventChanged() {
+        eventPublisher.publishEvent(CacheInvalidationEvent.all(CacheNames.COMPILATIONS));
+        eventPublisher.publishEvent(CacheInvalidationEvent.all(CacheNames.COMPILATION_PAGES));
+    }
+
     private void saveHitStatistic(String endpoint, String clientIp) {
         String timestampString = LocalDateTime.now().format(formatter);
 
         HitDto hit = new HitDto("ewm-main-service", endpoint, clientIp, timestampString);
-        statsClient.addHit(hit);
+        // хит отправляется мимо предохранителя: запрос его не ждёт, а сбои записи не закрывают чтение просмотров
+        statsClient.addHitAsync(hit).exceptionally(e -> {
+            log.warn("Не удалось отправить хит в сервис статистики: {}", e.getMessage());
+            return null;
+        });
     }
 
-    public List<EventShortDto> getEventsPublic(String text, List<Long> categories, Boolean paid, LocalDateTime rangeStart, LocalDateTime rangeEnd, Boolean onlyAvailable, String sort, Integer from, Integer size, String clientIp, String endpoint) {
+    public EventSearchResult getEventsPublic(String text, List<Long> categories, Boolean paid, LocalDateTime rangeStart, LocalDateTime rangeEnd, Boolean onlyAvailable, String sort, String after, Integer from, Integer size, String clientIp, String endpoint) {
+        SortEvents sortMode = parseSort(sort);
+        Tags tags = Tags.of("sort", sortMode == null ? "NONE" : sortMode.name(), "paging", after == null ? "offset" : "cursor");
+        return eventMetrics.record("ewm.events.public.search", tags,
+                () -> searchEventsPublic(text, categories, paid, rangeStart, rangeEnd, onlyAvailable, sortMode, after, from, size, clientIp, endpoint),
+                EventSearchResult::isViewsStale);
+    }
 
-        saveHitStatistic(endpoint, clientIp);
+    private EventSearchResult searchEventsPublic(String text, List<Long> categories, Boolean paid, LocalDateTime rangeStart, LocalDateTime rangeEnd, Boolean onlyAvailable, SortEvents sortMode, String after, Integer from, Integer size, String clientIp, String endpoint) {
 
-        Pageable pageable = PageRequest.of(from / size, size);
+        saveHitStatistic(endpoint, clientIp);
 
         if (rangeStart == null) rangeStart = LocalDateTime.now();
         if (rangeEnd == null) rangeEnd = LocalDateTime.now().plusYears(100);
@@ -319,80 +362,105 @@ public class EventService {
         }
 
 
-        List<Event> events = eventRepository.findPublicEvents(text, categories, paid, rangeStart, rangeEnd, onlyAvailable, pageable).getContent();
-
-        updateViewsForEvents(events);
+        String query = toSearchQuery(text);
+        if (text != null && !text.isBlank() && query == null) {
+            return new EventSearchResult(Collections.emptyList(), null, false);
+        }
 
+        List<Event> events;
+        if (sortMode == SortEvents.RELEVANCE && query != null) {
+            if (after != null) {
+                throw new ValidationException("Курсор after не поддерживается для sort=RELEVANCE");
+            }
+            events = eventRepository.findPublicEventsByRelevance(query, categories, paid, rangeStart, rangeEnd, onlyAvailable, PageRequest.of(from / size, size));
+        } else if (after != null) {
+            EventCursor cursor = EventCursor.decode(after, sortMode);
+            Pageable limit = PageRequest.of(0, size);
+            if (sortMode == SortEvents.EVENT_DATE) {
+                events = eventRepository.findPublicEventsAfterEventDate(query, categories, paid, rangeStart, rangeEnd, onlyAvailable, cursor.getEventDate(), cursor.getId(), limit);
+            } else if (sortMode == SortEvents.VIEWS) {
+                events = eventRepository.findPublicEventsAfterViews(query, categories, paid, rangeStart, rangeEnd, onlyAvailable, cursor.getViews(), cursor.getId(), limit);
+            } else {
+                events = eventRepository.findPublicEventsAfterId(query, categories, paid, rangeStart, rangeEnd, onlyAvailable, cursor.getId(), limit);
+            }
+        } else {
+            Pageable pageable = PageRequest.of(from / size, size, toPublicSort(sortMode));
+            events = eventRepository.findPublicEvents(query, categories, paid, rangeStart, rangeEnd, onlyAvailable, pageable);
+        }
 
-        if ("EVENT_DATE".equals(sort)) {
-            List<Event> sortedEvents = new ArrayList<>(events);
-            sortedEvents.sort((e1, e2) -> e2.getEventDate().compareTo(e1.getEventDate()));
-            events = sortedEvents;
-        } else if ("VIEWS".equals(sort)) {
-            List<Event> sortedEvents = new ArrayList<>(events);
-            sortedEvents.sort((e1, e2) -> e2.getViews().compareTo(e1.getViews()));
-            events = sortedEvents;
+        String nextCursor = null;
+        if (events.size() == size && sortMode != SortEvents.RELEVANCE) {
+            nextCursor = EventCursor.after(sortMode, events.get(events.size() - 1)).encode();
         }
 
-        return events.stream().map(event -> eventMapper.toShortDto(event, categoriesMapper.toDto(event.getCategory()), userMapper.toShortDto(event.getInitiator()))).collect(Collectors.toList());
+        List<Long> ids = events.stream().map(Event::getId).collect(Collectors.toList());
+        Optional<Map<Long, Long>> freshViews = getViews(ids);
+        Map<Long, Long> views = freshViews.orElseGet(() -> eventViewsCache.getLastKnownViews(ids));
+
+        List<EventShortDto> result = events.stream().map(event -> {
+            EventShortDto dto = eventMapper.toShortDto(event, categoriesService.getCategoriesId(event.getCategory().getId()), userService.getUserShort(event.getInitiator().getId()));
+            dto.setViews(views.getOrDefault(event.getId(), event.getViews()));
+            return dto;
+        }).collect(Collectors.toList());
+        return new EventSearchResult(result, nextCursor, freshViews.isEmpty());
+    }
+
+    public EventFullResult getEventPublic(Long id, String clientIp, String endpoint) {
+        return eventMetrics.record("ewm.events.public.get", Tags.empty(),
+                () -> readEventPublic(id, clientIp, endpoint),
+                EventFullResult::isViewsStale);
     }
 
-    public EventFullDto getEventPublic(Long id, String clientIp, String endpoint) {
+    private EventFullResult readEventPublic(Long id, String clientIp, String endpoint) {
         Event event = getPublishEventById(id);
 
-        updateViewsForSingleEvent(event);
+        // events.views хранит все просмотры, а карточка показывает уникальных посетителей: без известного
+        // уникального значения отдаётся 0 с пометкой устаревших данных, а не общее число просмотров
+        Optional<Long> freshViews = eventViewsCache.getUniqueViews(id);
+        Long views = freshViews.or(() -> eventViewsCache.getLastKnownUniqueViews(id)).orElse(0L);
         saveHitStatistic(endpoint, clientIp);
+        eventViewsCache.recordView(event.getId());
 
-        return eventMapper.toFullDto(event, categoriesMapper.toDto(event.getCategory()), userMapper.toShortDto(event.getInitiator()), locationMapper.toLocationDto(event.getLocation()));
+        EventFullDto dto = eventMapper.toFullDto(event, categoriesService.getCategoriesId(event.getCategory().getId()), userService.getUserShort(event.getInitiator().getId()), locationMapper.toLocationDto(event.getLocation()));
+        dto.setViews(views);
+        return new EventFullResult(dto, freshViews.isEmpty());
     }
 
-    private void updateViewsForEvents(List<Event> events) {
-
-        if (events.isEmpty()) return;
-
+    private SortEvents parseSort(String sort) {
+        if (sort == null) {
+            return null;
+        }
         try {
-            LocalDateTime start = LocalDateTime.now().minusYears(100);
-            LocalDateTime end = LocalDateTime.now();
-
-            List<String> uris = events.stream().map(event -> "/events/" + event.getId()).collect(Collectors.toList());
-
-            List<StatsDto> stats = statsClient.getStats(start, end, uris, false);
-
-            Map<Long, Long> viewsMap = new HashMap<>();
-            for (StatsDto stat : stats) {
-                try {
-                    Long eventId = Long.parseLong(stat.getUri().substring("/events/".length()));
-                    viewsMap.put(eventId, stat.getHits());
-                } catch (NumberFormatException e) {
-                    log.warn("Невозможно распарсить ID события из URI: {}", stat.getUri());
-                }
-            }
-
-            for (Event event : events) {
-                Long currentViews = viewsMap.getOrDefault(event.getId(), event.getViews());
-                event.setViews(currentViews);
-            }
-
-        } catch (Exception e) {
-            log.error("Ошибка при пакетном обновлении просмотров: {}", e.getMessage());
+            return SortEvents.valueOf(sort);
+        } catch (IllegalArgumentException e) {
+            log.warn("Неизвестный параметр сортировки: {}", sort);
+            return null;
         }
     }
 
-    private void updateViewsForSingleEvent(Event event) {
-        try {
-            LocalDateTime start = LocalDateTime.now().minusYears(100);
-            LocalDateTime end = LocalDateTime.now();
-            String eventUri = "/events/" + event.getId();
-
-            List<StatsDto> stats = statsClient.getStats(start, end, List.of(eventUri), true);
-
-            if (!stats.isEmpty()) {
-                event.setViews((long) stats.size());
-            }
+    private Sort toPublicSort(SortEvents sortMode) {
+        if (sortMode == SortEvents.EVENT_DATE) {
+            return Sort.by(Sort.Direction.DESC, "event_date", "id");
+        } else if (sortMode == SortEvents.VIEWS) {
+            return Sort.by(Sort.Direction.DESC, "views", "id");
+        }
+        return Sort.by("id");
+    }
 
-        } catch (Exception e) {
-            log.error("Ошибка при обновлении просмотров для события {}: {}", event.getId(), e.getMessage());
+    private String toSearchQuery(String text) {
+        if (text == null) {
+            return null;
         }
+        String query = Arrays.stream(text.toLowerCase().split("[^\\p{L}\\p{N}]+"))
+                .filter(token -> !token.isEmpty())
+                .map(token -> token + ":*")
+                .collect(Collectors.joining(" & "));
+        return query.isEmpty() ? null : query;
+    }
+
+    private Optional<Map<Long, Long>> getViews(List<Long> ids) {
+        if (ids.isEmpty()) return Optional.of(Collections.emptyMap());
+        return eventViewsCache.getViews(ids);
     }
 
     private User getUserById(Long userId) {
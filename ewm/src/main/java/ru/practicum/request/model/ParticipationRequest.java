@@ -10,6 +10,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.*;
 import ru.practicum.event.model.Event;
 import ru.practicum.users.model.User;
@@ -18,7 +19,7 @@ import ru.practicum.users.model.User;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "requests")
+@Table(name = "requests", uniqueConstraints = @UniqueConstraint(name = "uq_requests_requester_event", columnNames = {"requester_id", "event_id"}))
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -2,6 +2,7 @@ package ru.practicum.request.service;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.event.model.Event;
 import ru.practicum.event.repository.EventRepository;
 import ru.practicum.exception.ConflictException;
@@ -33,6 +34,7 @@ public class RequestService {
         return requests.stream().map(requestMapper::toDto).collect(Collectors.toList());
     }
 
+    @Transactional
     public ParticipationRequestDto create(Long userId, Long eventId) {
         User user = getUser(userId);
         Event event = getPublishedEvent(eventId);
@@ -40,13 +42,19 @@ public class RequestService {
         checkNoDuplicate(userId, eventId);
         checkNotInitiator(userId, event);
 
-        checkLimit(event, eventId);
+        checkLimit(event);
         RequestStatus status = resolveStatus(event);
 
+        // место резервируется условным UPDATE, поэтому параллельные заявки не превысят лимит
+        if (status == CONFIRMED && eventRepository.reserveConfirmedRequests(eventId, 1) == 0) {
+            throw new ConflictException("Достигнут лимит участников.");
+        }
+
         ParticipationRequest request = requestMapper.toRequest(event, user, status);
         return requestMapper.toDto(requestRepository.save(request));
     }
 
+    @Transactional
     public ParticipationRequestDto cancel(Long userId, Long requestId) {
         getUser(userId);
         ParticipationRequest request = getRequest(requestId);
@@ -55,13 +63,12 @@ public class RequestService {
             throw new NotFoundException("Запрос не этого пользователя.");
         }
 
+        boolean wasConfirmed = request.getStatus() == CONFIRMED;
         request.setStatus(RequestStatus.CANCELED);
         ParticipationRequest canceledRequest = requestRepository.save(request);
 
-        if (request.getStatus() == CONFIRMED) {
-            Event event = request.getEvent();
-            event.setConfirmedRequests(event.getConfirmedRequests() - 1);
-            eventRepository.save(event);
+        if (wasConfirmed) {
+            eventRepository.addConfirmedRequests(request.getEvent().getId(), -1);
         }
 
         return requestMapper.toDto(canceledRequest);
@@ -92,9 +99,8 @@ public class RequestService {
         }
     }
 
-    private void checkLimit(Event event, Long eventId) {
-        long confirmed = requestRepository.countByEventIdAndStatus(eventId, CONFIRMED);
-        if (event.getParticipantLimit() > 0 && confirmed >= event.getParticipantLimit()) {
+    private void checkLimit(Event event) {
+        if (event.getParticipantLimit() > 0 && event.getConfirmedRequests() >= event.getParticipantLimit()) {
             throw new ConflictException("Достигнут лимит участников.");
         }
     }
@@ -0,0 +1,248 @@
+package ru.practicum.stats;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.controller.StatsClient;
+import ru.practicum.dto.StatsDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+public class EventViewsCache {
+    private static final String EVENT_URI_PREFIX = "/events/";
+
+    private final StatsClient statsClient;
+    private final StatsCircuitBreaker statsCircuitBreaker;
+    private final AsyncLoadingCache<Long, ViewCount> viewsCache;
+    private final AsyncLoadingCache<Long, ViewCount> uniqueViewsCache;
+    private final Timer stalenessTimer;
+    // просмотры, записанные после загрузки из статистики. Хранятся отдельно: запись в сам кэш
+    // считается записью и сбрасывает expireAfterWrite и refreshAfterWrite, и горячее событие не обновлялось бы
+    private final Map<Long, Long> localViews = new ConcurrentHashMap<>();
+    private final Set<Long> viewedEvents = ConcurrentHashMap.newKeySet();
+    private final Duration refreshBatchDelay;
+
+    public EventViewsCache(StatsClient statsClient,
+                           StatsCircuitBreaker statsCircuitBreaker,
+                           MeterRegistry meterRegistry,
+                           @Qualifier("applicationTaskExecutor") Executor executor,
+                           @Value("${ewm.views-cache.maximum-size:100000}") long maximumSize,
+                           @Value("${ewm.views-cache.expire-after-write:60s}") Duration expireAfterWrite,
+                           @Value("${ewm.views-cache.refresh-after-write:10s}") Duration refreshAfterWrite,
+                           @Value("${ewm.views-cache.refresh-batch-delay:20ms}") Duration refreshBatchDelay) {
+        this.statsClient = statsClient;
+        this.statsCircuitBreaker = statsCircuitBreaker;
+        this.refreshBatchDelay = refreshBatchDelay;
+        this.viewsCache = buildCache(maximumSize, expireAfterWrite, refreshAfterWrite, executor, new ViewsLoader(false),
+                (eventId, count, cause) -> localViews.remove(eventId));
+        this.uniqueViewsCache = buildCache(maximumSize, expireAfterWrite, refreshAfterWrite, executor, new ViewsLoader(true),
+                (eventId, count, cause) -> viewedEvents.remove(eventId));
+        CaffeineCacheMetrics.monitor(meterRegistry, viewsCache, "eventViews");
+        CaffeineCacheMetrics.monitor(meterRegistry, uniqueViewsCache, "eventUniqueViews");
+        this.stalenessTimer = Timer.builder("ewm.views.cache.staleness")
+                .description("Возраст значения просмотров на момент выдачи из кэша")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    // пустой результат - загрузка не удалась или отклонена предохранителем; вызывающий берёт последнее известное значение.
+    // Дольше бюджета предохранителя ожидание не длится: он ограничивает саму загрузку
+    public Optional<Map<Long, Long>> getViews(Collection<Long> eventIds) {
+        return await(viewsCache.getAll(eventIds)).map(counts -> {
+            Map<Long, Long> views = new HashMap<>();
+            counts.forEach((id, count) -> views.put(id, serve(count) + localViews.getOrDefault(id, 0L)));
+            return views;
+        });
+    }
+
+    public Optional<Long> getUniqueViews(Long eventId) {
+        return await(uniqueViewsCache.get(eventId)).map(count -> withLocalUniqueView(eventId, serve(count)));
+    }
+
+    public Map<Long, Long> getLastKnownViews(Collection<Long> eventIds) {
+        Map<Long, Long> views = new HashMap<>();
+        for (Long eventId : eventIds) {
+            completed(viewsCache.getIfPresent(eventId))
+                    .ifPresent(count -> views.put(eventId, count.views() + localViews.getOrDefault(eventId, 0L)));
+        }
+        return views;
+    }
+
+    public Optional<Long> getLastKnownUniqueViews(Long eventId) {
+        return completed(uniqueViewsCache.getIfPresent(eventId)).map(count -> withLocalUniqueView(eventId, count.views()));
+    }
+
+    public void recordView(Long eventId) {
+        if (viewsCache.asMap().containsKey(eventId)) {
+            localViews.merge(eventId, 1L, Long::sum);
+        }
+        if (uniqueViewsCache.asMap().containsKey(eventId)) {
+            viewedEvents.add(eventId);
+        }
+    }
+
+    // после первого просмотра уникальных посетителей точно не меньше одного
+    private long withLocalUniqueView(Long eventId, long views) {
+        return views == 0 && viewedEvents.contains(eventId) ? 1 : views;
+    }
+
+    private static Optional<ViewCount> completed(CompletableFuture<ViewCount> count) {
+        if (count == null || !count.isDone() || count.isCompletedExceptionally()) {
+            return Optional.empty();
+        }
+        return Optional.of(count.join());
+    }
+
+    private static <T> Optional<T> await(CompletableFuture<T> loading) {
+        try {
+            return Optional.of(loading.join());
+        } catch (CompletionException | CancellationException e) {
+            return Optional.empty();
+        }
+    }
+
+    private long serve(ViewCount count) {
+        stalenessTimer.record(System.nanoTime() - count.loadedAt(), TimeUnit.NANOSECONDS);
+        return count.views();
+    }
+
+    // загрузка идёт асинхронно, а не внутри compute хэш-таблицы: ожидание HTTP не пинит виртуальный поток
+    private static AsyncLoadingCache<Long, ViewCount> buildCache(long maximumSize, Duration expireAfterWrite,
+                                                               Duration refreshAfterWrite, Executor executor,
+                                                               AsyncCacheLoader<Long, ViewCount> loader,
+                                                               RemovalListener<Long, ViewCount> evictionListener) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .refreshAfterWrite(refreshAfterWrite)
+                .executor(executor)
+                .evictionListener(evictionListener)
+                .recordStats()
+                .buildAsync(loader);
+    }
+
+    private record ViewCount(long views, long loadedAt) {
+    }
+
+    private class ViewsLoader implements AsyncCacheLoader<Long, ViewCount> {
+        private final boolean unique;
+        // Caffeine обновляет ключи по одному; обновления, назревшие за refresh-batch-delay, уходят одним запросом
+        private final Map<Long, CompletableFuture<ViewCount>> dueRefreshes = new HashMap<>();
+
+        ViewsLoader(boolean unique) {
+            this.unique = unique;
+        }
+
+        @Override
+        public CompletableFuture<ViewCount> asyncLoad(Long eventId, Executor executor) {
+            return asyncLoadAll(Set.of(eventId), executor).thenApply(result -> result.get(eventId));
+        }
+
+        @Override
+        public CompletableFuture<ViewCount> asyncReload(Long eventId, ViewCount oldValue, Executor executor) {
+            CompletableFuture<ViewCount> reload;
+            boolean first;
+            synchronized (dueRefreshes) {
+                first = dueRefreshes.isEmpty();
+                reload = dueRefreshes.computeIfAbsent(eventId, id -> new CompletableFuture<>());
+            }
+            if (first) {
+                Executor delayed = CompletableFuture.delayedExecutor(
+                        refreshBatchDelay.toMillis(), TimeUnit.MILLISECONDS, executor);
+                delayed.execute(() -> refreshDue(executor));
+            }
+            return reload;
+        }
+
+        // неудачное обновление оставляет в кэше прежнее значение, как и одиночное
+        private void refreshDue(Executor executor) {
+            Map<Long, CompletableFuture<ViewCount>> batch;
+            synchronized (dueRefreshes) {
+                batch = new HashMap<>(dueRefreshes);
+                dueRefreshes.clear();
+            }
+            CompletableFuture<Map<Long, ViewCount>> loading;
+            try {
+                loading = asyncLoadAll(batch.keySet(), executor);
+            } catch (RuntimeException e) {
+                loading = CompletableFuture.failedFuture(e);
+            }
+            loading.whenComplete((counts, e) -> batch.forEach((eventId, reload) -> {
+                if (e != null) {
+                    reload.completeExceptionally(e);
+                } else {
+                    reload.complete(counts.get(eventId));
+                }
+            }));
+        }
+
+        @Override
+        public CompletableFuture<Map<Long, ViewCount>> asyncLoadAll(Set<? extends Long> eventIds, Executor executor) {
+            List<String> uris = eventIds.stream().map(id -> EVENT_URI_PREFIX + id).toList();
+            // локальные просмотры, сделанные до запроса, уже учтены статистикой; сделанные во время запроса остаются
+            Map<Long, Long> counted = new HashMap<>();
+            if (!unique) {
+                eventIds.forEach(id -> counted.put(id, localViews.getOrDefault(id, 0L)));
+            }
+            // обновление по refreshAfterWrite идёт тем же путём: при открытом предохранителе сервис не вызывается,
+            // а в кэше остаётся прежнее значение
+            return statsCircuitBreaker.call(() ->
+                            statsClient.getStatsAsync(LocalDateTime.now().minusYears(100), LocalDateTime.now(), uris, unique))
+                    .thenApply(stats -> {
+                        Map<Long, ViewCount> counts = toViewCounts(eventIds, stats);
+                        if (unique) {
+                            counts.forEach((id, count) -> {
+                                if (count.views() > 0) {
+                                    viewedEvents.remove(id);
+                                }
+                            });
+                        } else {
+                            counted.forEach((id, views) -> localViews.computeIfPresent(id,
+                                    (key, current) -> current > views ? current - views : null));
+                        }
+                        return counts;
+                    });
+        }
+
+        private Map<Long, ViewCount> toViewCounts(Set<? extends Long> eventIds, List<StatsDto> stats) {
+            long loadedAt = System.nanoTime();
+
+            Map<Long, ViewCount> result = new HashMap<>();
+            for (StatsDto stat : stats) {
+                try {
+                    Long eventId = Long.parseLong(stat.getUri().substring(EVENT_URI_PREFIX.length()));
+                    result.put(eventId, new ViewCount(stat.getHits(), loadedAt));
+                } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                    log.warn("Невозможно распарсить ID события из URI: {}", stat.getUri());
+                }
+            }
+            for (Long eventId : eventIds) {
+                result.putIfAbsent(eventId, new ViewCount(0L, loadedAt));
+            }
+            return result;
+        }
+    }
+}
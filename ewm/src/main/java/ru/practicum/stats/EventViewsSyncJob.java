@@ -0,0 +1,166 @@
+package ru.practicum.stats;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.controller.StatsClient;
+import ru.practicum.dto.StatsDto;
+import ru.practicum.event.repository.EventViewsBatchRepository;
+import ru.practicum.stats.model.ViewsSyncWatermark;
+import ru.practicum.stats.repository.ViewsSyncWatermarkRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Прибавляет к events.views хиты из непересекающихся окон [synced_to, upper). Окно применяется
+ * в одной транзакции с переносом водяного знака, поэтому повтор после сбоя или второй экземпляр
+ * не задваивают просмотры. Правая граница отстаёт от текущего времени на settle-delay: хит,
+ * пришедший в stats-server позже этой задержки со временем левее водяного знака, в окно не попадёт.
+ * Такие опоздавшие хиты (журнал stats-server, пакеты HitBatcher) добирает сверка раз в reconcile-interval:
+ * вместе с окном запрашиваются полные суммы, и views поднимается до них под тем же водяным знаком.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "ewm.views-sync.enabled", havingValue = "true", matchIfMissing = true)
+public class EventViewsSyncJob {
+    private static final String EVENT_URI_PREFIX = "/events/";
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    private final StatsClient statsClient;
+    private final EventViewsBatchRepository eventViewsBatchRepository;
+    private final ViewsSyncWatermarkRepository watermarkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration settleDelay;
+    private final long reconcileIntervalNanos;
+
+    private final Timer syncTimer;
+    private final Counter updatedCounter;
+
+    // копия synced_to для метрики отставания, источник истины — строка views_sync_watermark
+    private volatile LocalDateTime watermark = EPOCH;
+    private long lastReconcileNanos = System.nanoTime();
+
+    public EventViewsSyncJob(StatsClient statsClient,
+                             EventViewsBatchRepository eventViewsBatchRepository,
+                             ViewsSyncWatermarkRepository watermarkRepository,
+                             TransactionTemplate transactionTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${ewm.views-sync.settle-delay:60s}") Duration settleDelay,
+                             @Value("${ewm.views-sync.reconcile-interval:PT1H}") Duration reconcileInterval) {
+        this.statsClient = statsClient;
+        this.eventViewsBatchRepository = eventViewsBatchRepository;
+        this.watermarkRepository = watermarkRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.settleDelay = settleDelay;
+        this.reconcileIntervalNanos = reconcileInterval.toNanos();
+
+        Gauge.builder("ewm.views.sync.lag", this, job -> Duration.between(job.watermark, LocalDateTime.now()).toMillis() / 1000.0)
+                .description("Отставание events.views от сервиса статистики, секунды")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.syncTimer = Timer.builder("ewm.views.sync.duration").register(meterRegistry);
+        this.updatedCounter = Counter.builder("ewm.views.sync.updated")
+                .description("Строки events, у которых синхронизация изменила views")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${ewm.views-sync.interval:PT10S}", fixedDelayString = "${ewm.views-sync.interval:PT10S}")
+    public void sync() {
+        try {
+            syncTimer.record(this::syncOnce);
+        } catch (Exception e) {
+            log.warn("Синхронизация просмотров не удалась, повтор с водяного знака {}: {}", watermark, e.getMessage());
+        }
+    }
+
+    private void syncOnce() {
+        // границы выровнены по минутам: такие запросы stats-server отвечает из памяти и роллапов, не читая hits
+        LocalDateTime upper = LocalDateTime.now().minus(settleDelay).truncatedTo(ChronoUnit.MINUTES);
+        Optional<LocalDateTime> syncedTo = watermarkRepository.findById(ViewsSyncWatermark.ID)
+                .map(ViewsSyncWatermark::getSyncedTo);
+        if (syncedTo.isEmpty()) {
+            bootstrap(upper);
+            return;
+        }
+        LocalDateTime from = syncedTo.get();
+        watermark = from;
+        if (!from.isBefore(upper)) {
+            return;
+        }
+
+        boolean reconcile = System.nanoTime() - lastReconcileNanos >= reconcileIntervalNanos;
+        // конец окна у stats-server включительный, а время хитов — с точностью до секунды
+        Map<Long, Long> deltas = viewsByEvent(statsClient.getStats(from, upper.minusSeconds(1), null, false));
+        Map<Long, Long> totals = reconcile
+                ? viewsByEvent(statsClient.getStats(EPOCH, upper.minusSeconds(1), null, false))
+                : Map.of();
+        Integer updated = transactionTemplate.execute(status -> {
+            ViewsSyncWatermark locked = watermarkRepository.findForUpdate(ViewsSyncWatermark.ID).orElseThrow();
+            if (!locked.getSyncedTo().equals(from)) {
+                // окно уже применил другой экземпляр
+                return 0;
+            }
+            // окно прибавляется всегда, а полные суммы лишь поднимают views до себя:
+            // хиты, вытесненные из stats по сроку хранения, счётчик не уменьшают
+            int changed = eventViewsBatchRepository.addViews(deltas) + eventViewsBatchRepository.raiseViews(totals);
+            locked.setSyncedTo(upper);
+            return changed;
+        });
+        updatedCounter.increment(updated);
+        watermark = upper;
+        if (reconcile) {
+            lastReconcileNanos = System.nanoTime();
+            log.info("Просмотры сверены с полными суммами: событий={}, изменено={}, водяной знак={}", totals.size(), updated, upper);
+        } else if (!deltas.isEmpty()) {
+            log.debug("Синхронизированы просмотры: событий={}, изменено={}, водяной знак={}", deltas.size(), updated, upper);
+        }
+    }
+
+    // первый запуск на пустой базе: полные суммы один раз, дальше только окна
+    private void bootstrap(LocalDateTime upper) {
+        Map<Long, Long> totals = viewsByEvent(statsClient.getStats(EPOCH, upper.minusSeconds(1), null, false));
+        Integer updated = transactionTemplate.execute(status -> {
+            int changed = eventViewsBatchRepository.setViews(totals);
+            watermarkRepository.save(new ViewsSyncWatermark(ViewsSyncWatermark.ID, upper));
+            return changed;
+        });
+        updatedCounter.increment(updated);
+        watermark = upper;
+        log.info("Просмотры синхронизированы полностью: событий={}, водяной знак={}", totals.size(), upper);
+    }
+
+    private static Map<Long, Long> viewsByEvent(List<StatsDto> stats) {
+        Map<Long, Long> views = new HashMap<>();
+        for (StatsDto entry : stats) {
+            Long eventId = parseEventId(entry.getUri());
+            if (eventId != null) {
+                views.merge(eventId, entry.getHits(), Long::sum);
+            }
+        }
+        return views;
+    }
+
+    private static Long parseEventId(String uri) {
+        if (uri == null || !uri.startsWith(EVENT_URI_PREFIX)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(uri.substring(EVENT_URI_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
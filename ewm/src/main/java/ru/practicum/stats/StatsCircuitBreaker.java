@@ -0,0 +1,118 @@
+package ru.practicum.stats;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+@Slf4j
+@Component
+public class StatsCircuitBreaker {
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Duration latencyBudget;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+
+    private final Counter successCounter;
+    private final Counter failureCounter;
+    private final Counter timeoutCounter;
+    private final Counter rejectedCounter;
+
+    public StatsCircuitBreaker(MeterRegistry meterRegistry,
+                               @Value("${ewm.stats-breaker.failure-threshold:5}") int failureThreshold,
+                               @Value("${ewm.stats-breaker.open-duration:30s}") Duration openDuration,
+                               @Value("${ewm.stats-breaker.latency-budget:500ms}") Duration latencyBudget) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.latencyBudget = latencyBudget;
+
+        Gauge.builder("ewm.stats.breaker.state", state, current -> current.get().ordinal())
+                .description("Состояние предохранителя вызовов статистики: 0 - закрыт, 1 - открыт, 2 - пробный вызов")
+                .register(meterRegistry);
+        this.successCounter = callCounter(meterRegistry, "success");
+        this.failureCounter = callCounter(meterRegistry, "failure");
+        this.timeoutCounter = callCounter(meterRegistry, "timeout");
+        this.rejectedCounter = callCounter(meterRegistry, "rejected");
+    }
+
+    // оборачивает сам удалённый вызов: отклонённый, упавший или не уложившийся в бюджет вызов завершается ошибкой,
+    // и состояние меняют только настоящие ответы сервиса статистики
+    public <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> action) {
+        if (!tryAcquire()) {
+            rejectedCounter.increment();
+            return CompletableFuture.failedFuture(new IllegalStateException("Предохранитель сервиса статистики открыт"));
+        }
+        CompletableFuture<T> result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            onFailure(failureCounter, e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        }
+        return result.orTimeout(latencyBudget.toNanos(), TimeUnit.NANOSECONDS).whenComplete((value, error) -> {
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause == null) {
+                onSuccess();
+            } else if (cause instanceof TimeoutException) {
+                onFailure(timeoutCounter, "превышен бюджет " + latencyBudget.toMillis() + " мс");
+            } else {
+                onFailure(failureCounter, cause.getMessage());
+            }
+        });
+    }
+
+    private boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN && System.nanoTime() - openedAt >= openDuration.toNanos()) {
+            return state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        }
+        return false;
+    }
+
+    private void onSuccess() {
+        successCounter.increment();
+        consecutiveFailures.set(0);
+        if (state.getAndSet(State.CLOSED) != State.CLOSED) {
+            log.info("Сервис статистики снова отвечает, предохранитель закрыт");
+        }
+    }
+
+    private void onFailure(Counter counter, String reason) {
+        counter.increment();
+        log.debug("Вызов сервиса статистики не удался: {}", reason);
+        if (state.get() == State.HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAt = System.nanoTime();
+            consecutiveFailures.set(0);
+            if (state.getAndSet(State.OPEN) != State.OPEN) {
+                log.warn("Предохранитель сервиса статистики открыт на {} с: {}", openDuration.toSeconds(), reason);
+            }
+        }
+    }
+
+    private static Counter callCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("ewm.stats.breaker.calls")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+}
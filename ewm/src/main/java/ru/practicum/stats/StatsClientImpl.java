@@ -1,17 +1,86 @@
 package ru.practicum.stats;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import ru.practicum.controller.AsyncHitProperties;
+import ru.practicum.controller.NonBlockingStatsClient;
 import ru.practicum.controller.StatsClient;
+import ru.practicum.controller.StatsHttpProperties;
+import ru.practicum.dto.HitBatchResultDto;
+import ru.practicum.dto.HitDto;
+import ru.practicum.dto.StatsDto;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
+@Slf4j
+@Primary
 @Component
 public class StatsClientImpl extends StatsClient {
+    private final AsyncHitProperties asyncProperties;
+    private final NonBlockingStatsClient nonBlockingClient;
 
     @Autowired
-    public StatsClientImpl(@Value("${stats.server.url}") String serverUrl, RestTemplateBuilder builder) {
-        super(serverUrl, builder);
+    public StatsClientImpl(@Value("${stats.server.url}") String serverUrl, RestTemplateBuilder builder,
+                           AsyncHitProperties asyncProperties, StatsHttpProperties httpProperties,
+                           MeterRegistry meterRegistry, ObjectMapper objectMapper,
+                           @Qualifier("applicationTaskExecutor") Executor executor) {
+        super(serverUrl, builder, asyncProperties, httpProperties, meterRegistry, executor);
+        this.asyncProperties = asyncProperties;
+        this.nonBlockingClient = httpProperties.isNonBlocking()
+                ? new NonBlockingStatsClient(serverUrl, httpProperties, objectMapper, executor)
+                : null;
+        log.info("Клиент статистики: {}", nonBlockingClient != null ? "неблокирующий HttpClient" : "RestTemplate");
+    }
+
+    @Override
+    public void addHit(HitDto hitDto) {
+        if (nonBlockingClient == null || asyncProperties.isEnabled()) {
+            super.addHit(hitDto);
+            return;
+        }
+        timedAsync("hit", () -> nonBlockingClient.addHitAsync(hitDto)).exceptionally(e -> {
+            log.warn("Не удалось отправить хит в сервис статистики: {}", e.getMessage());
+            return null;
+        });
+    }
+
+    @Override
+    public HitBatchResultDto addHits(List<HitDto> hits) {
+        return nonBlockingClient != null ? timed("hits", () -> nonBlockingClient.addHits(hits)) : super.addHits(hits);
+    }
+
+    @Override
+    public List<StatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+        return nonBlockingClient != null
+                ? timed("stats", () -> nonBlockingClient.getStats(start, end, uris, unique))
+                : super.getStats(start, end, uris, unique);
+    }
+
+    @Override
+    public CompletableFuture<Void> addHitAsync(HitDto hitDto) {
+        if (asyncProperties.isEnabled()) {
+            super.addHit(hitDto);
+            return CompletableFuture.completedFuture(null);
+        }
+        return nonBlockingClient != null
+                ? timedAsync("hit", () -> nonBlockingClient.addHitAsync(hitDto))
+                : super.addHitAsync(hitDto);
+    }
+
+    @Override
+    public CompletableFuture<List<StatsDto>> getStatsAsync(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+        return nonBlockingClient != null
+                ? timedAsync("stats", () -> nonBlockingClient.getStatsAsync(start, end, uris, unique))
+                : super.getStatsAsync(start, end, uris, unique);
     }
 }
@@ -0,0 +1,27 @@
+package ru.practicum.stats.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// единственная строка: хиты до synced_to уже прибавлены к events.views
+@Entity
+@Table(name = "views_sync_watermark")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ViewsSyncWatermark {
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(name = "synced_to", nullable = false)
+    private LocalDateTime syncedTo;
+}
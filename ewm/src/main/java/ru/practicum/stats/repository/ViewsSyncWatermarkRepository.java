@@ -0,0 +1,17 @@
+package ru.practicum.stats.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.stats.model.ViewsSyncWatermark;
+
+import java.util.Optional;
+
+public interface ViewsSyncWatermarkRepository extends JpaRepository<ViewsSyncWatermark, Integer> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM ViewsSyncWatermark w WHERE w.id = :id")
+    Optional<ViewsSyncWatermark> findForUpdate(@Param("id") Integer id);
+}
@@ -1,17 +1,22 @@
 package ru.practicum.users.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.cache.CacheInvalidationEvent;
+import ru.practicum.cache.CacheNames;
 import ru.practicum.exception.ConflictException;
 import ru.practicum.exception.NotFoundException;
 import ru.practicum.exception.ValidationException;
 import ru.practicum.users.dto.NewUserRequest;
 import ru.practicum.users.dto.UserDto;
 import ru.practicum.users.dto.UserMapper;
+import ru.practicum.users.dto.UserShortDto;
 import ru.practicum.users.model.User;
 import ru.practicum.users.repository.UserRepository;
 
@@ -23,6 +28,7 @@ import java.util.List;
 public class UserService {
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public UserDto createUser(NewUserRequest newUserRequest) {
@@ -65,6 +71,17 @@ public class UserService {
             throw new NotFoundException("Пользователь с id " + userId + " не найден");
         }
         userRepository.deleteById(userId);
+        eventPublisher.publishEvent(CacheInvalidationEvent.of(CacheNames.USER_SHORTS, userId));
+        eventPublisher.publishEvent(CacheInvalidationEvent.all(CacheNames.COMPILATIONS));
+        eventPublisher.publishEvent(CacheInvalidationEvent.all(CacheNames.COMPILATION_PAGES));
+    }
+
+    // инициатор события рендерится по id из ленивой ссылки, не поднимая прокси пользователя
+    @Cacheable(cacheNames = CacheNames.USER_SHORTS, key = "#userId", sync = true)
+    public UserShortDto getUserShort(Long userId) {
+        return userRepository.findById(userId)
+                .map(userMapper::toShortDto)
+                .orElseThrow(() -> new NotFoundException("Пользователь с id " + userId + " не найден"));
     }
 }
 
@@ -28,15 +28,25 @@ CREATE TABLE IF NOT EXISTS events (
     location_id BIGINT NOT NULL,
     CONSTRAINT fk_event_initiator FOREIGN KEY (initiator_id) REFERENCES users(id) ON DELETE CASCADE,
     CONSTRAINT fk_event_category FOREIGN KEY (category_id) REFERENCES categories(id) ON DELETE CASCADE,
+    search_vector tsvector GENERATED ALWAYS AS (
+        setweight(to_tsvector('simple', coalesce(annotation, '')), 'A') ||
+        setweight(to_tsvector('simple', coalesce(description, '')), 'B')) STORED,
     CONSTRAINT fk_event_location FOREIGN KEY (location_id) REFERENCES locations(id) ON DELETE CASCADE
 );
 
+CREATE INDEX IF NOT EXISTS idx_events_search_vector ON events USING GIN (search_vector);
+CREATE INDEX IF NOT EXISTS idx_events_state_event_date ON events (state, event_date, id);
+CREATE INDEX IF NOT EXISTS idx_events_state_views ON events (state, views, id);
+CREATE INDEX IF NOT EXISTS idx_events_available ON events (event_date, id)
+    WHERE state = 'PUBLISHED' AND (participant_limit = 0 OR confirmed_requests < participant_limit);
+
 CREATE TABLE IF NOT EXISTS requests (
     id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     created TIMESTAMP WITHOUT TIME ZONE,
     status VARCHAR(255) NOT NULL,
     requester_id BIGINT REFERENCES users(id) ON DELETE CASCADE,
-    event_id BIGINT REFERENCES events(id) ON DELETE CASCADE
+    event_id BIGINT REFERENCES events(id) ON DELETE CASCADE,
+    CONSTRAINT uq_requests_requester_event UNIQUE (requester_id, event_id)
 );
 
 CREATE TABLE IF NOT EXISTS compilations (
@@ -57,4 +67,9 @@ CREATE TABLE IF NOT EXISTS locations (
     id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     lat FLOAT NOT NULL,
     lon FLOAT NOT NULL
-);
\ No newline at end of file
+);
+
+CREATE TABLE IF NOT EXISTS views_sync_watermark (
+    id INTEGER PRIMARY KEY,
+    synced_to TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
@@ -0,0 +1,44 @@
+package ru.practicum;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.test.context.TestComponent;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Считает подготовленные JDBC-запросы по статистике Hibernate. Действие выполняется в одной сессии только для чтения,
+ * как HTTP-запрос с open-in-view.
+ */
+@TestComponent
+@RequiredArgsConstructor
+public class StatementCounter {
+    private final EntityManagerFactory entityManagerFactory;
+    private final CacheManager cacheManager;
+    private final PlatformTransactionManager transactionManager;
+
+    public <T> Counted<T> count(Supplier<T> action) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        statistics.clear();
+        T result = transaction.execute(status -> action.get());
+        return new Counted<>(result, statistics.getPrepareStatementCount());
+    }
+
+    // второй уровень Hibernate и кеши Spring пусты: худший случай после рестарта или инвалидации
+    public <T> Counted<T> countCold(Supplier<T> action) {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        cacheManager.getCacheNames().forEach(name -> Objects.requireNonNull(cacheManager.getCache(name)).clear());
+        return count(action);
+    }
+
+    public record Counted<T>(T result, long statements) {
+    }
+}
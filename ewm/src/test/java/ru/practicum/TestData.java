@@ -0,0 +1,58 @@
+package ru.practicum;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.test.context.TestComponent;
+import ru.practicum.category.model.Category;
+import ru.practicum.category.repository.CategoriesRepository;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.model.Location;
+import ru.practicum.event.model.State;
+import ru.practicum.event.repository.EventRepository;
+import ru.practicum.event.repository.LocationRepository;
+import ru.practicum.users.model.User;
+import ru.practicum.users.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Данные для тестов на общей базе: имена уникальны, поэтому тесты не мешают друг другу без очистки таблиц.
+ */
+@TestComponent
+@RequiredArgsConstructor
+public class TestData {
+    private static final AtomicLong SEQUENCE = new AtomicLong(System.nanoTime());
+
+    private final UserRepository userRepository;
+    private final CategoriesRepository categoriesRepository;
+    private final LocationRepository locationRepository;
+    private final EventRepository eventRepository;
+
+    public User user() {
+        long n = SEQUENCE.incrementAndGet();
+        return userRepository.save(User.builder().name("user " + n).email("user" + n + "@test.ru").build());
+    }
+
+    public Category category() {
+        return categoriesRepository.save(new Category(null, "category " + SEQUENCE.incrementAndGet()));
+    }
+
+    public Event publishedEvent(User initiator, Category category, int participantLimit, boolean requestModeration) {
+        LocalDateTime now = LocalDateTime.now();
+        Location location = locationRepository.save(Location.builder().lat(55.75f).lon(37.62f).build());
+        return eventRepository.save(Event.builder()
+                .annotation("Annotation of a test event")
+                .description("Description of a test event " + SEQUENCE.incrementAndGet())
+                .category(category)
+                .initiator(initiator)
+                .location(location)
+                .eventDate(now.plusDays(10))
+                .createdOn(now.minusDays(1))
+                .publishedOn(now.minusHours(1))
+                .participantLimit(participantLimit)
+                .requestModeration(requestModeration)
+                .state(State.PUBLISHED)
+                .title("Test event")
+                .build());
+    }
+}
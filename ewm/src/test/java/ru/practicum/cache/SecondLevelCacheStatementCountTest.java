@@ -0,0 +1,79 @@
+package ru.practicum.cache;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import ru.practicum.MainApp;
+import ru.practicum.StatementCounter;
+import ru.practicum.StatementCounter.Counted;
+import ru.practicum.TestData;
+import ru.practicum.category.model.Category;
+import ru.practicum.event.dto.EventFullDto;
+import ru.practicum.event.service.EventService;
+import ru.practicum.users.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Страница из 1000 событий не выбирает категории и инициаторов по одной: холодной хватает пакетных запросов,
+ * а с прогретым вторым уровнем Hibernate остаются только запросы страницы и подсчёта.
+ */
+@SpringBootTest(classes = MainApp.class)
+@Import({TestData.class, StatementCounter.class})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SecondLevelCacheStatementCountTest {
+    private static final int EVENTS = 1000;
+    private static final int CATEGORIES = 50;
+    private static final int INITIATORS = 50;
+    // default_batch_fetch_size
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private TestData testData;
+    @Autowired
+    private StatementCounter statementCounter;
+    @Autowired
+    private EventService eventService;
+
+    private final List<Long> categoryIds = new ArrayList<>();
+    private final List<Long> initiatorIds = new ArrayList<>();
+
+    @BeforeAll
+    void seedEvents() {
+        List<Category> categories = new ArrayList<>();
+        List<User> initiators = new ArrayList<>();
+        for (int i = 0; i < CATEGORIES; i++) {
+            categories.add(testData.category());
+        }
+        for (int i = 0; i < INITIATORS; i++) {
+            initiators.add(testData.user());
+        }
+        for (int i = 0; i < EVENTS; i++) {
+            testData.publishedEvent(initiators.get(i % INITIATORS), categories.get(i * 7 % CATEGORIES), 0, false);
+        }
+        categories.forEach(category -> categoryIds.add(category.getId()));
+        initiators.forEach(initiator -> initiatorIds.add(initiator.getId()));
+    }
+
+    @Test
+    void adminListingIsServedFromSecondLevelCacheWhenWarm() {
+        // страница, подсчёт, по пакету на категории и инициаторов, локации (у каждого события своя) пакетами
+        Counted<List<EventFullDto>> cold = statementCounter.countCold(this::searchAdmin);
+        assertThat(cold.result()).hasSize(EVENTS);
+        assertThat(cold.statements()).isEqualTo(2 + 1 + 1 + EVENTS / BATCH_SIZE);
+
+        Counted<List<EventFullDto>> warm = statementCounter.count(this::searchAdmin);
+        assertThat(warm.result()).hasSize(EVENTS);
+        assertThat(warm.statements()).isEqualTo(2);
+    }
+
+    private List<EventFullDto> searchAdmin() {
+        return eventService.getEventsByAdmin(initiatorIds, null, categoryIds, null, null, 0, EVENTS);
+    }
+}
@@ -0,0 +1,81 @@
+package ru.practicum.compilation.service;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import ru.practicum.MainApp;
+import ru.practicum.StatementCounter;
+import ru.practicum.StatementCounter.Counted;
+import ru.practicum.TestData;
+import ru.practicum.category.model.Category;
+import ru.practicum.compilation.dto.CompilationDto;
+import ru.practicum.compilation.dto.NewCompilationDto;
+import ru.practicum.users.model.User;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Страница подборок собирается тремя запросами при любом числе подборок и событий в них:
+ * страница, связи events_compilations и события вместе с категориями и инициаторами.
+ */
+@SpringBootTest(classes = MainApp.class)
+@Import({TestData.class, StatementCounter.class})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CompilationStatementCountTest {
+    private static final int COMPILATIONS = 10;
+    private static final int EVENTS_PER_COMPILATION = 10;
+
+    @Autowired
+    private TestData testData;
+    @Autowired
+    private StatementCounter statementCounter;
+    @Autowired
+    private CompilationService compilationService;
+
+    private Long compilationId;
+
+    @BeforeAll
+    void seedCompilations() {
+        Category category = testData.category();
+        for (int c = 0; c < COMPILATIONS; c++) {
+            Set<Long> eventIds = new HashSet<>();
+            for (int e = 0; e < EVENTS_PER_COMPILATION; e++) {
+                User initiator = testData.user();
+                eventIds.add(testData.publishedEvent(initiator, category, 0, false).getId());
+            }
+            CompilationDto compilation = compilationService.createCompilation(NewCompilationDto.builder()
+                    .title("compilation " + System.nanoTime())
+                    .pinned(true)
+                    .events(eventIds)
+                    .build());
+            compilationId = compilation.getId();
+        }
+    }
+
+    @Test
+    void compilationPageTakesThreeStatements() {
+        Counted<List<CompilationDto>> page = statementCounter.countCold(
+                () -> compilationService.getCompilations(true, 0, COMPILATIONS));
+
+        assertThat(page.result()).hasSize(COMPILATIONS);
+        assertThat(page.result()).allSatisfy(compilation ->
+                assertThat(compilation.getEvents()).hasSize(EVENTS_PER_COMPILATION));
+        assertThat(page.statements()).isEqualTo(3);
+    }
+
+    @Test
+    void singleCompilationTakesThreeStatements() {
+        Counted<CompilationDto> compilation = statementCounter.countCold(
+                () -> compilationService.getCompilationById(compilationId));
+
+        assertThat(compilation.result().getEvents()).hasSize(EVENTS_PER_COMPILATION);
+        assertThat(compilation.statements()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,87 @@
+package ru.practicum.event.repository;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.practicum.MainApp;
+import ru.practicum.TestData;
+import ru.practicum.category.model.Category;
+import ru.practicum.event.model.Event;
+import ru.practicum.users.model.User;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * План onlyAvailable на синтетическом объёме: события со свободными местами с сортировкой по дате
+ * выбираются через частичный индекс idx_events_available по счётчику confirmed_requests, без последовательного чтения.
+ */
+@SpringBootTest(classes = MainApp.class)
+@Import(TestData.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AvailableEventsPlanTest {
+    private static final int EVENTS = 20_000;
+
+    @Autowired
+    private TestData testData;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @BeforeAll
+    void seedEvents() {
+        User initiator = testData.user();
+        Category category = testData.category();
+        Event template = testData.publishedEvent(initiator, category, 0, false);
+        // треть событий не опубликована, у половины опубликованных заняты все места
+        jdbcTemplate.update("INSERT INTO events (annotation, description, category_id, location_id, initiator_id, "
+                        + "event_date, created_on, published_on, paid, participant_limit, confirmed_requests, "
+                        + "request_moderation, state, title, views) "
+                        + "SELECT 'Annotation of event ' || i, "
+                        + "'Description of event ' || i, ?, ?, ?, "
+                        + "now() + (i % 365) * interval '1 day' + (i % 1440) * interval '1 minute', now(), now(), i % 2 = 0, "
+                        + "CASE WHEN i % 4 < 2 THEN 10 ELSE 0 END, CASE WHEN i % 4 = 0 THEN 10 ELSE 0 END, "
+                        + "false, CASE WHEN i % 3 = 0 THEN 'PENDING' ELSE 'PUBLISHED' END, 'Event ' || i, i % 500 "
+                        + "FROM generate_series(1, ?) AS i",
+                category.getId(), template.getLocation().getId(), initiator.getId(), EVENTS);
+        jdbcTemplate.execute("ANALYZE events");
+    }
+
+    @Test
+    void onlyAvailableSortedByDateUsesPartialIndex() {
+        String plan = explain("SELECT e.* FROM events e " + EventRepository.PUBLIC_EVENTS_FILTER
+                        + "ORDER BY e.event_date DESC, e.id DESC LIMIT 10",
+                params(true));
+
+        assertThat(plan).contains("idx_events_available");
+        assertThat(plan).doesNotContain("Seq Scan on events");
+    }
+
+    // параметры привязываются так же, как у запросов репозитория: план строится под конкретные значения
+    private MapSqlParameterSource params(boolean onlyAvailable) {
+        LocalDateTime now = LocalDateTime.now();
+        return new MapSqlParameterSource()
+                .addValue("query", null, Types.VARCHAR)
+                .addValue("categories", null, Types.BIGINT)
+                .addValue("paid", null, Types.BOOLEAN)
+                .addValue("rangeStart", Timestamp.valueOf(now), Types.TIMESTAMP)
+                .addValue("rangeEnd", Timestamp.valueOf(now.plusYears(100)), Types.TIMESTAMP)
+                .addValue("onlyAvailable", onlyAvailable, Types.BOOLEAN);
+    }
+
+    private String explain(String sql, MapSqlParameterSource params) {
+        return namedJdbcTemplate.queryForList("EXPLAIN " + sql, params, String.class).stream()
+                .collect(Collectors.joining("\n"));
+    }
+}
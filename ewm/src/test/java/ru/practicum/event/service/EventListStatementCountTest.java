@@ -0,0 +1,95 @@
+package ru.practicum.event.service;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import ru.practicum.MainApp;
+import ru.practicum.StatementCounter;
+import ru.practicum.StatementCounter.Counted;
+import ru.practicum.TestData;
+import ru.practicum.category.model.Category;
+import ru.practicum.event.dto.EventFullDto;
+import ru.practicum.event.dto.EventSearchResult;
+import ru.practicum.users.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Число SQL-запросов на страницу списка событий не зависит от размера страницы:
+ * связи событий подгружаются пачками, а не по запросу на событие.
+ */
+@SpringBootTest(classes = MainApp.class)
+@Import({TestData.class, StatementCounter.class})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EventListStatementCountTest {
+    private static final int EVENTS = 100;
+    private static final int CATEGORIES = 5;
+    private static final int INITIATORS = 10;
+
+    @Autowired
+    private TestData testData;
+    @Autowired
+    private StatementCounter statementCounter;
+    @Autowired
+    private EventService eventService;
+
+    private final List<Long> categoryIds = new ArrayList<>();
+    private final List<Long> initiatorIds = new ArrayList<>();
+
+    @BeforeAll
+    void seedEvents() {
+        List<Category> categories = new ArrayList<>();
+        List<User> initiators = new ArrayList<>();
+        for (int i = 0; i < CATEGORIES; i++) {
+            categories.add(testData.category());
+        }
+        for (int i = 0; i < INITIATORS; i++) {
+            initiators.add(testData.user());
+        }
+        for (int i = 0; i < EVENTS; i++) {
+            testData.publishedEvent(initiators.get(i % INITIATORS), categories.get(i % CATEGORIES), 0, false);
+        }
+        categories.forEach(category -> categoryIds.add(category.getId()));
+        initiators.forEach(initiator -> initiatorIds.add(initiator.getId()));
+    }
+
+    @Test
+    void publicListingBatchLoadsAssociations() {
+        // холодный кеш: страница событий и по одному пакетному запросу на категории и инициаторов
+        Counted<EventSearchResult> cold = statementCounter.countCold(() -> searchPublic(EVENTS));
+        assertThat(cold.result().getEvents()).hasSize(EVENTS);
+        assertThat(cold.statements()).isEqualTo(3);
+
+        // с прогретыми кешами категорий и пользователей остаётся только запрос страницы
+        Counted<EventSearchResult> warm = statementCounter.count(() -> searchPublic(EVENTS));
+        assertThat(warm.result().getEvents()).hasSize(EVENTS);
+        assertThat(warm.statements()).isEqualTo(1);
+    }
+
+    @Test
+    void adminListingBatchLoadsAssociations() {
+        // страница, подсчёт total и по одному пакетному запросу на категории, инициаторов и локации
+        Counted<List<EventFullDto>> page = statementCounter.countCold(() -> searchAdmin(EVENTS));
+        assertThat(page.result()).hasSize(EVENTS);
+        assertThat(page.statements()).isEqualTo(5);
+
+        Counted<List<EventFullDto>> smallPage = statementCounter.countCold(() -> searchAdmin(10));
+        assertThat(smallPage.result()).hasSize(10);
+        assertThat(smallPage.statements()).isEqualTo(page.statements());
+    }
+
+    private EventSearchResult searchPublic(int size) {
+        return eventService.getEventsPublic(null, categoryIds, null, null, null, false, null, null, 0, size,
+                "127.0.0.1", "/events");
+    }
+
+    private List<EventFullDto> searchAdmin(int size) {
+        return eventService.getEventsByAdmin(initiatorIds, null, categoryIds, null, null, 0, size);
+    }
+}
@@ -0,0 +1,137 @@
+package ru.practicum.request.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import ru.practicum.MainApp;
+import ru.practicum.TestData;
+import ru.practicum.category.model.Category;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.repository.EventRepository;
+import ru.practicum.event.service.EventService;
+import ru.practicum.exception.ConflictException;
+import ru.practicum.request.dto.EventRequestStatusUpdateRequest;
+import ru.practicum.request.dto.EventRequestStatusUpdateResult;
+import ru.practicum.request.model.RequestStatus;
+import ru.practicum.request.repository.RequestRepository;
+import ru.practicum.users.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Много потоков одновременно подтверждают участие в одном событии: мест должно уйти ровно participantLimit.
+ */
+@Slf4j
+@SpringBootTest(classes = MainApp.class)
+@Import(TestData.class)
+class RequestReservationConcurrencyTest {
+    private static final int THREADS = 32;
+    private static final int PARTICIPANTS = 200;
+    private static final int LIMIT = 25;
+
+    @Autowired
+    private TestData testData;
+    @Autowired
+    private RequestService requestService;
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private RequestRepository requestRepository;
+
+    @Test
+    void concurrentSignUpsDoNotExceedParticipantLimit() throws Exception {
+        User initiator = testData.user();
+        Category category = testData.category();
+        Event event = testData.publishedEvent(initiator, category, LIMIT, false);
+        List<User> participants = new ArrayList<>();
+        for (int i = 0; i < PARTICIPANTS; i++) {
+            participants.add(testData.user());
+        }
+
+        List<Callable<Boolean>> signUps = participants.stream()
+                .<Callable<Boolean>>map(user -> () -> {
+                    try {
+                        requestService.create(user.getId(), event.getId());
+                        return true;
+                    } catch (ConflictException e) {
+                        return false;
+                    }
+                })
+                .toList();
+        long accepted = runConcurrently("sign-up", signUps);
+
+        assertThat(accepted).isEqualTo(LIMIT);
+        assertThat(requestRepository.countByEventIdAndStatus(event.getId(), RequestStatus.CONFIRMED)).isEqualTo(LIMIT);
+        assertThat(eventRepository.findById(event.getId()).orElseThrow().getConfirmedRequests()).isEqualTo(LIMIT);
+    }
+
+    @Test
+    void concurrentConfirmationsByInitiatorDoNotExceedParticipantLimit() throws Exception {
+        User initiator = testData.user();
+        Category category = testData.category();
+        Event event = testData.publishedEvent(initiator, category, LIMIT, true);
+        List<Long> requestIds = new ArrayList<>();
+        for (int i = 0; i < PARTICIPANTS; i++) {
+            requestIds.add(requestService.create(testData.user().getId(), event.getId()).getId());
+        }
+
+        List<Callable<Boolean>> confirmations = requestIds.stream()
+                .<Callable<Boolean>>map(requestId -> () -> {
+                    try {
+                        EventRequestStatusUpdateResult result = eventService.updateEventRequests(initiator.getId(), event.getId(),
+                                new EventRequestStatusUpdateRequest(List.of(requestId), "CONFIRMED"));
+                        return !result.getConfirmedRequests().isEmpty();
+                    } catch (ConflictException e) {
+                        return false;
+                    }
+                })
+                .toList();
+        long accepted = runConcurrently("confirmation", confirmations);
+
+        assertThat(accepted).isEqualTo(LIMIT);
+        assertThat(requestRepository.countByEventIdAndStatus(event.getId(), RequestStatus.CONFIRMED)).isEqualTo(LIMIT);
+        assertThat(eventRepository.findById(event.getId()).orElseThrow().getConfirmedRequests()).isEqualTo(LIMIT);
+    }
+
+    // все задачи стартуют одновременно по защёлке; возвращает число успешных
+    private long runConcurrently(String name, List<Callable<Boolean>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (Callable<Boolean> task : tasks) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            long startedAt = System.nanoTime();
+            start.countDown();
+            long accepted = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(60, TimeUnit.SECONDS)) {
+                    accepted++;
+                }
+            }
+            double seconds = (System.nanoTime() - startedAt) / 1e9;
+            log.info("{}: {} calls from {} threads in {} s, {} calls/s", name, tasks.size(), THREADS,
+                    String.format("%.2f", seconds), String.format("%.0f", tasks.size() / seconds));
+            return accepted;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
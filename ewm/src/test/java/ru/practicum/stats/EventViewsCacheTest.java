@@ -0,0 +1,56 @@
+package ru.practicum.stats;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import ru.practicum.controller.StatsClient;
+import ru.practicum.dto.StatsDto;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Страница событий, у которой истёк refresh-after-write, обновляется одним запросом к статистике, а не запросом на событие.
+ */
+class EventViewsCacheTest {
+    private static final int EVENTS = 100;
+
+    @Test
+    void dueRefreshesOfListingAreLoadedInOneCall() throws Exception {
+        StatsClient statsClient = mock(StatsClient.class);
+        when(statsClient.getStatsAsync(any(), any(), anyList(), eq(false)))
+                .thenReturn(CompletableFuture.completedFuture(List.of(new StatsDto("ewm-main-service", "/events/1", 3L))));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+            EventViewsCache cache = new EventViewsCache(statsClient,
+                    new StatsCircuitBreaker(meterRegistry, 5, Duration.ofSeconds(30), Duration.ofSeconds(5)),
+                    meterRegistry, executor, 1000, Duration.ofMinutes(1), Duration.ofMillis(50), Duration.ofMillis(20));
+            List<Long> eventIds = LongStream.rangeClosed(1, EVENTS).boxed().toList();
+
+            assertThat(cache.getViews(eventIds)).hasValueSatisfying(views -> assertThat(views).hasSize(EVENTS));
+            Thread.sleep(100);
+            assertThat(cache.getViews(eventIds)).hasValueSatisfying(views -> assertThat(views.get(1L)).isEqualTo(3L));
+
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<List<String>> uris = ArgumentCaptor.forClass(List.class);
+            verify(statsClient, timeout(1000).times(2)).getStatsAsync(any(), any(), uris.capture(), eq(false));
+            assertThat(uris.getAllValues()).allSatisfy(batch -> assertThat(batch).hasSize(EVENTS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package ru.practicum.stats;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.MainApp;
+import ru.practicum.TestData;
+import ru.practicum.controller.StatsClient;
+import ru.practicum.dto.StatsDto;
+import ru.practicum.event.model.Event;
+import ru.practicum.event.repository.EventRepository;
+import ru.practicum.event.repository.EventViewsBatchRepository;
+import ru.practicum.stats.model.ViewsSyncWatermark;
+import ru.practicum.stats.repository.ViewsSyncWatermarkRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Полные суммы запрашиваются один раз, на пустом водяном знаке; дальше каждое окно прибавляется к views ровно один раз.
+ * Сверка добирает хиты, опоздавшие за водяной знак, а сохранение события не затирает применённые окна.
+ */
+@SpringBootTest(classes = MainApp.class)
+@Import(TestData.class)
+class EventViewsSyncJobTest {
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    @Autowired
+    private TestData testData;
+    @Autowired
+    private EventViewsBatchRepository eventViewsBatchRepository;
+    @Autowired
+    private ViewsSyncWatermarkRepository watermarkRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Test
+    void bootstrapsOnceAndAppliesEachWindowOnce() {
+        watermarkRepository.deleteAll();
+        Event event = testData.publishedEvent(testData.user(), testData.category(), 0, false);
+        String uri = "/events/" + event.getId();
+        StatsClient statsClient = mock(StatsClient.class);
+        EventViewsSyncJob job = new EventViewsSyncJob(statsClient, eventViewsBatchRepository, watermarkRepository,
+                transactionTemplate, new SimpleMeterRegistry(), Duration.ZERO, Duration.ofHours(1));
+
+        when(statsClient.getStats(eq(EPOCH), any(), isNull(), eq(false)))
+                .thenReturn(List.of(new StatsDto("ewm-main-service", uri, 5L)));
+        job.sync();
+        assertThat(views(event)).isEqualTo(5);
+        LocalDateTime syncedTo = watermarkRepository.findById(ViewsSyncWatermark.ID).orElseThrow().getSyncedTo();
+
+        LocalDateTime windowStart = syncedTo.minusMinutes(5);
+        watermarkRepository.save(new ViewsSyncWatermark(ViewsSyncWatermark.ID, windowStart));
+        when(statsClient.getStats(eq(windowStart), any(), isNull(), eq(false)))
+                .thenReturn(List.of(new StatsDto("ewm-main-service", uri, 2L)));
+        job.sync();
+        job.sync();
+
+        assertThat(views(event)).isEqualTo(7);
+        assertThat(watermarkRepository.findById(ViewsSyncWatermark.ID).orElseThrow().getSyncedTo())
+                .isAfterOrEqualTo(syncedTo);
+    }
+
+    @Test
+    void reconciliationRaisesViewsToLateTotalsAndSaveKeepsThem() {
+        watermarkRepository.deleteAll();
+        Event event = testData.publishedEvent(testData.user(), testData.category(), 0, false);
+        String uri = "/events/" + event.getId();
+        StatsClient statsClient = mock(StatsClient.class);
+        EventViewsSyncJob job = new EventViewsSyncJob(statsClient, eventViewsBatchRepository, watermarkRepository,
+                transactionTemplate, new SimpleMeterRegistry(), Duration.ZERO, Duration.ZERO);
+
+        when(statsClient.getStats(eq(EPOCH), any(), isNull(), eq(false)))
+                .thenReturn(List.of(new StatsDto("ewm-main-service", uri, 5L)))
+                // 5 до водяного знака, 2 в новом окне и 3 опоздавших хита левее водяного знака
+                .thenReturn(List.of(new StatsDto("ewm-main-service", uri, 10L)));
+        job.sync();
+        LocalDateTime windowStart = watermarkRepository.findById(ViewsSyncWatermark.ID).orElseThrow().getSyncedTo()
+                .minusMinutes(5);
+        watermarkRepository.save(new ViewsSyncWatermark(ViewsSyncWatermark.ID, windowStart));
+        when(statsClient.getStats(eq(windowStart), any(), isNull(), eq(false)))
+                .thenReturn(List.of(new StatsDto("ewm-main-service", uri, 2L)));
+
+        Event stale = eventRepository.findById(event.getId()).orElseThrow();
+        job.sync();
+        assertThat(views(event)).isEqualTo(10);
+
+        stale.setTitle("Обновлённое событие");
+        eventRepository.save(stale);
+        assertThat(views(event)).isEqualTo(10);
+    }
+
+    private long views(Event event) {
+        return jdbcTemplate.queryForObject("SELECT views FROM events WHERE id = ?", Long.class, event.getId());
+    }
+}
@@ -0,0 +1,30 @@
+package ru.practicum.controller;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "stats-client.async")
+public class AsyncHitProperties {
+    private boolean enabled = false;
+
+    private int queueCapacity = 10_000;
+
+    private int batchSize = 500;
+
+    private Duration flushInterval = Duration.ofMillis(500);
+
+    private BackpressurePolicy backpressure = BackpressurePolicy.DROP_OLDEST;
+
+    private Duration blockTimeout = Duration.ofMillis(100);
+
+    private double sampleRate = 0.1;
+
+    private int retryAttempts = 3;
+
+    private Duration retryBackoff = Duration.ofSeconds(1);
+}
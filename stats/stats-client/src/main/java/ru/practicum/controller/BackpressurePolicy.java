@@ -0,0 +1,10 @@
+package ru.practicum.controller;
+
+public enum BackpressurePolicy {
+    // при переполнении очереди вытесняется самый старый хит
+    DROP_OLDEST,
+    // поток запроса ждёт освобождения места не дольше block-timeout
+    BLOCK,
+    // при заполнении очереди больше чем наполовину принимается только доля sample-rate хитов
+    SAMPLE
+}
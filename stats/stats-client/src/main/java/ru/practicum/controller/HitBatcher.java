@@ -0,0 +1,204 @@
+package ru.practicum.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.dto.HitDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Копит хиты в ограниченной очереди и отправляет их пачками из одного потока. Пачка, которую сервис
+ * статистики не принял, возвращается в очередь по той же политике переполнения, а отправка приостанавливается
+ * на retry-backoff, удваивающийся с каждой попыткой. Хиты, не отправленные за retry-attempts повторов или при
+ * остановке, считаются в stats.client.hits.failed.
+ */
+@Slf4j
+public class HitBatcher implements AutoCloseable {
+    private final BlockingQueue<QueuedHit> queue;
+    private final Consumer<List<HitDto>> sink;
+    private final AsyncHitProperties properties;
+    private final Thread flusher;
+
+    private final Counter droppedCounter;
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+    private final Counter retriedCounter;
+    private final Timer flushTimer;
+
+    private volatile boolean running = true;
+    // читается и пишется только потоком отправки
+    private long retryAtNanos;
+
+    public HitBatcher(Consumer<List<HitDto>> sink, AsyncHitProperties properties, MeterRegistry meterRegistry) {
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.sink = sink;
+        this.properties = properties;
+
+        Gauge.builder("stats.client.hits.queue.depth", queue, BlockingQueue::size)
+                .description("Хиты, ожидающие отправки в сервис статистики")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("stats.client.hits.dropped")
+                .tag("policy", properties.getBackpressure().name())
+                .register(meterRegistry);
+        this.sentCounter = Counter.builder("stats.client.hits.sent").register(meterRegistry);
+        this.failedCounter = Counter.builder("stats.client.hits.failed")
+                .description("Хиты, от которых отказались после всех повторов")
+                .register(meterRegistry);
+        this.retriedCounter = Counter.builder("stats.client.hits.retried").register(meterRegistry);
+        this.flushTimer = Timer.builder("stats.client.hits.flush")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+
+        this.flusher = new Thread(this::runFlushLoop, "stats-hit-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public void submit(HitDto hit) {
+        QueuedHit queued = new QueuedHit(hit, 0);
+        switch (properties.getBackpressure()) {
+            case DROP_OLDEST -> offerDroppingOldest(queued);
+            case BLOCK -> offerBlocking(queued);
+            case SAMPLE -> offerSampled(queued);
+        }
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    private void offerDroppingOldest(QueuedHit hit) {
+        while (!queue.offer(hit)) {
+            if (queue.poll() != null) {
+                droppedCounter.increment();
+            }
+        }
+    }
+
+    private void offerBlocking(QueuedHit hit) {
+        try {
+            if (!queue.offer(hit, properties.getBlockTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                droppedCounter.increment();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            droppedCounter.increment();
+        }
+    }
+
+    private void offerSampled(QueuedHit hit) {
+        boolean overHalf = queue.size() * 2 >= properties.getQueueCapacity();
+        if (overHalf && ThreadLocalRandom.current().nextDouble() >= properties.getSampleRate()) {
+            droppedCounter.increment();
+            return;
+        }
+        if (!queue.offer(hit)) {
+            droppedCounter.increment();
+        }
+    }
+
+    private void runFlushLoop() {
+        int batchSize = properties.getBatchSize();
+        long intervalNanos = properties.getFlushInterval().toNanos();
+        List<QueuedHit> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            awaitRetry();
+            long deadline = System.nanoTime() + intervalNanos;
+            try {
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    QueuedHit hit = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (hit == null) {
+                        break;
+                    }
+                    batch.add(hit);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<QueuedHit> batch) {
+        long startNanos = System.nanoTime();
+        try {
+            sink.accept(batch.stream().map(QueuedHit::hit).toList());
+            sentCounter.increment(batch.size());
+        } catch (Exception e) {
+            log.warn("Не удалось отправить {} хитов в сервис статистики: {}", batch.size(), e.getMessage());
+            retryLater(batch);
+        } finally {
+            flushTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void retryLater(List<QueuedHit> batch) {
+        int attempt = 0;
+        for (QueuedHit hit : batch) {
+            if (!running || hit.attempt() >= properties.getRetryAttempts()) {
+                failedCounter.increment();
+                continue;
+            }
+            attempt = Math.max(attempt, hit.attempt() + 1);
+            retriedCounter.increment();
+            requeue(new QueuedHit(hit.hit(), hit.attempt() + 1));
+        }
+        if (attempt > 0) {
+            long backoffNanos = properties.getRetryBackoff().toNanos() << Math.min(attempt - 1, 20);
+            retryAtNanos = System.nanoTime() + backoffNanos;
+        }
+    }
+
+    // поток отправки - единственный читатель очереди, поэтому при BLOCK он не ждёт места, а теряет хит
+    private void requeue(QueuedHit hit) {
+        if (properties.getBackpressure() == BackpressurePolicy.DROP_OLDEST) {
+            offerDroppingOldest(hit);
+        } else if (!queue.offer(hit)) {
+            droppedCounter.increment();
+        }
+    }
+
+    private void awaitRetry() {
+        long remaining = retryAtNanos - System.nanoTime();
+        if (running && remaining > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            } catch (InterruptedException e) {
+                // остановка: оставшиеся хиты отправляются без ожидания
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        flusher.interrupt();
+        try {
+            flusher.join(properties.getFlushInterval().toMillis() * 2 + 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record QueuedHit(HitDto hit, int attempt) {
+    }
+}
@@ -0,0 +1,142 @@
+package ru.practicum.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.util.UriComponentsBuilder;
+import ru.practicum.dto.HitBatchResultDto;
+import ru.practicum.dto.HitDto;
+import ru.practicum.dto.StatsDto;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+public class NonBlockingStatsClient {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final String serverUrl;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final Duration readTimeout;
+
+    // одинаковые параллельные запросы статистики ждут один и тот же ответ
+    private final ConcurrentMap<URI, CompletableFuture<List<StatsDto>>> inFlight = new ConcurrentHashMap<>();
+
+    public NonBlockingStatsClient(String serverUrl, StatsHttpProperties properties, ObjectMapper objectMapper, Executor executor) {
+        this.serverUrl = serverUrl;
+        this.objectMapper = objectMapper;
+        this.readTimeout = properties.getReadTimeout();
+        this.httpClient = HttpClient.newBuilder()
+                .executor(executor)
+                .connectTimeout(properties.getConnectTimeout())
+                .version(properties.getVersion())
+                .build();
+    }
+
+    public CompletableFuture<Void> addHitAsync(HitDto hitDto) {
+        return send(post("/hit", hitDto)).thenApply(body -> null);
+    }
+
+    public CompletableFuture<HitBatchResultDto> addHitsAsync(List<HitDto> hits) {
+        return send(post("/hit/batch", hits)).thenApply(body -> read(body, HitBatchResultDto.class));
+    }
+
+    public CompletableFuture<List<StatsDto>> getStatsAsync(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+        URI uri = statsUri(start, end, uris, unique);
+        CompletableFuture<List<StatsDto>> created = new CompletableFuture<>();
+        CompletableFuture<List<StatsDto>> existing = inFlight.putIfAbsent(uri, created);
+        if (existing != null) {
+            return existing.copy();
+        }
+
+        send(HttpRequest.newBuilder(uri).timeout(readTimeout).GET().build())
+                .thenApply(body -> List.of(read(body, StatsDto[].class)))
+                .whenComplete((stats, error) -> {
+                    inFlight.remove(uri, created);
+                    if (error != null) {
+                        created.completeExceptionally(error);
+                    } else {
+                        created.complete(stats);
+                    }
+                });
+        return created.copy();
+    }
+
+    public HitBatchResultDto addHits(List<HitDto> hits) {
+        return join(addHitsAsync(hits));
+    }
+
+    public List<StatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+        return join(getStatsAsync(start, end, uris, unique));
+    }
+
+    private URI statsUri(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(serverUrl)
+                .path("/stats")
+                .queryParam("start", start.format(FORMATTER))
+                .queryParam("end", end.format(FORMATTER))
+                .queryParam("unique", unique);
+        if (uris != null && !uris.isEmpty()) {
+            builder.queryParam("uris", uris.toArray());
+        }
+        return builder.encode().build().toUri();
+    }
+
+    private HttpRequest post(String path, Object body) {
+        try {
+            return HttpRequest.newBuilder(URI.create(serverUrl + path))
+                    .timeout(readTimeout)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Не удалось сериализовать запрос к сервису статистики", e);
+        }
+    }
+
+    private CompletableFuture<byte[]> send(HttpRequest request) {
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    if (response.statusCode() >= 400) {
+                        throw new RestClientResponseException("Сервис статистики ответил " + response.statusCode(),
+                                response.statusCode(), "", null, response.body(), StandardCharsets.UTF_8);
+                    }
+                    return response.body();
+                });
+    }
+
+    private <T> T read(byte[] body, Class<T> type) {
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Некорректный ответ сервиса статистики", e);
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -1,37 +1,75 @@
 package ru.practicum.controller;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
+import ru.practicum.dto.HitBatchResultDto;
 import ru.practicum.dto.HitDto;
 import ru.practicum.dto.StatsDto;
+import ru.practicum.metrics.TimedCalls;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 @Service
 public class StatsClient {
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     private final RestTemplate restTemplate;
+    private final AsyncHitProperties asyncProperties;
+    private final MeterRegistry meterRegistry;
+    // для блокирующих вызовов addHitAsync/getStatsAsync: в общем ForkJoinPool они отнимали бы потоки у всего процесса
+    private final Executor executor;
+
+    private volatile HitBatcher hitBatcher;
 
     @Autowired
-    public StatsClient(@Value("${stats-server.url}") String serverUrl, RestTemplateBuilder builder) {
-        this.restTemplate = builder.rootUri(serverUrl).build();
+    public StatsClient(@Value("${stats-server.url}") String serverUrl, RestTemplateBuilder builder,
+                       AsyncHitProperties asyncProperties, StatsHttpProperties httpProperties, MeterRegistry meterRegistry,
+                       ObjectProvider<Executor> executors) {
+        // без единственного Executor в контексте - виртуальный поток на вызов: пул не держит потоков и не требует закрытия
+        this(serverUrl, builder, asyncProperties, httpProperties, meterRegistry,
+                executors.getIfUnique(Executors::newVirtualThreadPerTaskExecutor));
+    }
+
+    public StatsClient(String serverUrl, RestTemplateBuilder builder, AsyncHitProperties asyncProperties,
+                       StatsHttpProperties httpProperties, MeterRegistry meterRegistry, Executor executor) {
+        this.restTemplate = builder.rootUri(serverUrl)
+                .setConnectTimeout(httpProperties.getConnectTimeout())
+                .setReadTimeout(httpProperties.getReadTimeout())
+                .build();
+        this.asyncProperties = asyncProperties;
+        this.meterRegistry = meterRegistry;
+        this.executor = executor;
     }
 
     public void addHit(HitDto hitDto) {
-        restTemplate.postForLocation("/hit", hitDto);
+        if (asyncProperties.isEnabled()) {
+            getHitBatcher().submit(hitDto);
+        } else {
+            timed("hit", () -> restTemplate.postForLocation("/hit", hitDto));
+        }
     }
 
     public List<StatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+        return timed("stats", () -> requestStats(start, end, uris, unique));
+    }
 
+    private List<StatsDto> requestStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
         StringBuilder uriBuilder = new StringBuilder("/stats?start={start}&end={end}&unique={unique}");
         Map<String, Object> params = Map.of(
                 "start", start.format(FORMATTER),
@@ -52,4 +90,74 @@ public class StatsClient {
         }
         return Arrays.asList(statsArray);
     }
+
+    public CompletableFuture<Void> addHitAsync(HitDto hitDto) {
+        return CompletableFuture.runAsync(() -> addHit(hitDto), executor);
+    }
+
+    public CompletableFuture<List<StatsDto>> getStatsAsync(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+        return CompletableFuture.supplyAsync(() -> getStats(start, end, uris, unique), executor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        HitBatcher batcher = hitBatcher;
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    public HitBatchResultDto addHits(List<HitDto> hits) {
+        return timed("hits", () -> restTemplate.postForObject("/hit/batch", hits, HitBatchResultDto.class));
+    }
+
+    /**
+     * Время вызова сервиса статистики в stats.client.requests с тегами operation и outcome.
+     */
+    protected <T> T timed(String operation, Supplier<T> call) {
+        return TimedCalls.record(meterRegistry, requestTimer(operation), call, e -> TimedCalls.ERROR);
+    }
+
+    // асинхронный вызов замеряется до завершения future, даже если вызывающий перестал его ждать
+    protected <T> CompletableFuture<T> timedAsync(String operation, Supplier<CompletableFuture<T>> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            sample.stop(requestTimer(operation, TimedCalls.ERROR));
+            throw e;
+        }
+        return future.whenComplete((result, e) ->
+                sample.stop(requestTimer(operation, e == null ? TimedCalls.SUCCESS : TimedCalls.ERROR)));
+    }
+
+    private Timer.Builder requestTimer(String operation) {
+        return Timer.builder("stats.client.requests").tag("operation", operation);
+    }
+
+    private Timer requestTimer(String operation, String outcome) {
+        return requestTimer(operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private void sendBatch(List<HitDto> hits) {
+        addHits(hits);
+    }
+
+    private HitBatcher getHitBatcher() {
+        HitBatcher batcher = hitBatcher;
+        if (batcher == null) {
+            synchronized (this) {
+                batcher = hitBatcher;
+                if (batcher == null) {
+                    batcher = new HitBatcher(this::sendBatch, asyncProperties, meterRegistry);
+                    hitBatcher = batcher;
+                }
+            }
+        }
+        return batcher;
+    }
 }
@@ -0,0 +1,22 @@
+package ru.practicum.controller;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "stats-client.http")
+public class StatsHttpProperties {
+    // true - неблокирующий клиент на JDK HttpClient вместо RestTemplate
+    private boolean nonBlocking = false;
+
+    private Duration connectTimeout = Duration.ofSeconds(2);
+
+    private Duration readTimeout = Duration.ofSeconds(5);
+
+    private HttpClient.Version version = HttpClient.Version.HTTP_1_1;
+}
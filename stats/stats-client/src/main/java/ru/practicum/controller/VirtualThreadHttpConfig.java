@@ -0,0 +1,33 @@
+package ru.practicum.controller;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.client.RestTemplateCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.Executor;
+
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadHttpConfig {
+
+    // JDK HttpClient держит пул соединений и не блокирует несущие потоки на вводе-выводе
+    @Bean
+    public RestTemplateCustomizer virtualThreadRequestFactory(@Qualifier("applicationTaskExecutor") Executor executor,
+                                                              StatsHttpProperties properties) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .executor(executor)
+                .connectTimeout(properties.getConnectTimeout())
+                .version(properties.getVersion())
+                .build();
+        return restTemplate -> {
+            JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient, executor);
+            requestFactory.setReadTimeout(properties.getReadTimeout());
+            restTemplate.setRequestFactory(requestFactory);
+        };
+    }
+}
@@ -0,0 +1,47 @@
+package ru.practicum.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Замер вызова таймером с тегом outcome. Общий для ewm, stats-client и stats-server: модули различаются
+ * только тем, как называют исход успешного вызова и исключения.
+ */
+public final class TimedCalls {
+    public static final String SUCCESS = "success";
+    public static final String ERROR = "error";
+
+    private TimedCalls() {
+    }
+
+    public static <T> T record(MeterRegistry meterRegistry, Timer.Builder timer, Supplier<T> action,
+                               Function<RuntimeException, String> failureOutcome) {
+        return record(meterRegistry, timer, action, result -> SUCCESS, failureOutcome);
+    }
+
+    /**
+     * Выполняет действие и останавливает таймер с outcome из successOutcome или failureOutcome.
+     * Builder дополняется тегом outcome, поэтому на каждый вызов нужен свой.
+     */
+    public static <T> T record(MeterRegistry meterRegistry, Timer.Builder timer, Supplier<T> action,
+                               Function<? super T, String> successOutcome,
+                               Function<RuntimeException, String> failureOutcome) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = ERROR;
+        try {
+            T result = action.get();
+            outcome = successOutcome.apply(result);
+            return result;
+        } catch (RuntimeException e) {
+            outcome = failureOutcome.apply(e);
+            throw e;
+        } finally {
+            sample.stop(timer.tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+}
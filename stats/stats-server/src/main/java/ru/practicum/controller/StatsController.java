@@ -1,16 +1,28 @@
 package ru.practicum.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.dto.HitBatchResultDto;
 import ru.practicum.dto.HitDto;
 import ru.practicum.dto.StatsDto;
 import ru.practicum.service.StatsService;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
@@ -18,7 +30,15 @@ import java.util.List;
 @RequiredArgsConstructor
 @Slf4j
 public class StatsController {
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+    private static final String UNIQUE_MODE_HEADER = "X-Stats-Unique-Mode";
+    private static final String UNIQUE_ERROR_HEADER = "X-Stats-Unique-Error";
+
     private final StatsService statsService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${stats.hits.batch-size:1000}")
+    private int batchSize;
 
     @PostMapping("/hit")
     @ResponseStatus(HttpStatus.CREATED)
@@ -27,14 +47,60 @@ public class StatsController {
         return statsService.addHit(hitDto);
     }
 
+    @PostMapping(value = "/hit/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public HitBatchResultDto addHits(@RequestBody List<@Valid HitDto> hitDtos) {
+        log.info("Received hit batch: size={}", hitDtos.size());
+        return statsService.addHits(hitDtos);
+    }
+
+    /**
+     * Поток принимается целиком или не принимается вовсе: все строки разбираются до записи и уходят в сервис
+     * одной пачкой, которая проверяется целиком и пишется одной транзакцией (или одной записью в журнал).
+     * Ошибка разбора называет номер строки.
+     */
+    @PostMapping(value = "/hit/batch", consumes = APPLICATION_NDJSON)
+    @ResponseStatus(HttpStatus.CREATED)
+    public HitBatchResultDto addHitsStream(InputStream body) throws IOException {
+        List<HitDto> hitDtos = new ArrayList<>(batchSize);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                hitDtos.add(objectMapper.readValue(line, HitDto.class));
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Строка " + lineNumber + ": " + e.getOriginalMessage());
+            }
+        }
+        if (hitDtos.isEmpty()) {
+            return new HitBatchResultDto(0);
+        }
+        HitBatchResultDto result = statsService.addHits(hitDtos);
+        log.info("Received hit stream: saved={}", result.getSaved());
+        return result;
+    }
+
     @GetMapping("/stats")
-    public List<StatsDto> getStats(
+    public ResponseEntity<List<StatsDto>> getStats(
             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
             @RequestParam(required = false) List<String> uris,
-            @RequestParam(defaultValue = "false") Boolean unique) {
+            @RequestParam(defaultValue = "false") Boolean unique,
+            @RequestParam(defaultValue = "false") Boolean exact) {
 
-        log.info("Get stats request: start={}, end={}, uris={}, unique={}", start, end, uris, unique);
-        return statsService.getStats(start, end, uris, unique);
+        log.info("Get stats request: start={}, end={}, uris={}, unique={}, exact={}", start, end, uris, unique, exact);
+        List<StatsDto> stats = statsService.getStats(start, end, uris, unique, exact);
+        if (statsService.isApproximate(unique, exact)) {
+            return ResponseEntity.ok()
+                    .header(UNIQUE_MODE_HEADER, "hll")
+                    .header(UNIQUE_ERROR_HEADER, String.valueOf(statsService.getUniqueErrorBound()))
+                    .body(stats);
+        }
+        return ResponseEntity.ok(stats);
     }
 }
@@ -1,5 +1,6 @@
 package ru.practicum.exc;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -14,4 +15,10 @@ public class ErrorHandler {
     public ApiError handleIllegalArgumentException(final IllegalArgumentException e) {
         return new ApiError(HttpStatus.BAD_REQUEST, "Incorrectly made request.", e.getMessage(), LocalDateTime.now());
     }
+
+    @ExceptionHandler(JsonProcessingException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ApiError handleJsonProcessingException(final JsonProcessingException e) {
+        return new ApiError(HttpStatus.BAD_REQUEST, "Incorrectly made request.", e.getOriginalMessage(), LocalDateTime.now());
+    }
 }
\ No newline at end of file
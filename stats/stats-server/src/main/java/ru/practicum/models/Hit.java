@@ -1,6 +1,5 @@
 package ru.practicum.models;
 
-import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,22 +11,19 @@ import java.time.LocalDateTime;
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
-@Entity
-@Table(name = "hits")
 public class Hit {
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "app", nullable = false, length = 256)
     private String app;
 
-    @Column(name = "uri", nullable = false, length = 512)
     private String uri;
 
-    @Column(name = "ip", nullable = false, length = 45)
     private String ip;
 
-    @Column(name = "timestamp", nullable = false)
     private LocalDateTime timestamp;
+
+    // идентификаторы из словарей apps и endpoints, в таблице hits хранятся только они
+    private Integer appId;
+
+    private Integer endpointId;
 }
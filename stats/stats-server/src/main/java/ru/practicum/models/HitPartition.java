@@ -0,0 +1,37 @@
+package ru.practicum.models;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+public record HitPartition(String name, LocalDateTime from, LocalDateTime to) {
+    public static final String PREFIX = "hits_p";
+
+    public static HitPartition of(PartitionInterval interval, LocalDateTime time) {
+        LocalDateTime from = interval.floor(time);
+        return new HitPartition(PREFIX + interval.suffix(from), from, interval.next(from));
+    }
+
+    // имя секции однозначно задаёт её границы, так что их не нужно разбирать из pg_get_expr
+    public static Optional<HitPartition> parse(String name) {
+        if (name == null || !name.startsWith(PREFIX)) {
+            return Optional.empty();
+        }
+        String suffix = name.substring(PREFIX.length());
+        for (PartitionInterval interval : PartitionInterval.values()) {
+            if (suffix.length() != interval.getSuffixLength()) {
+                continue;
+            }
+            try {
+                String date = interval == PartitionInterval.MONTH ? suffix + "01" : suffix;
+                LocalDateTime from = LocalDate.parse(date, DateTimeFormatter.BASIC_ISO_DATE).atStartOfDay();
+                return Optional.of(new HitPartition(name, from, interval.next(from)));
+            } catch (DateTimeParseException e) {
+                return Optional.empty();
+            }
+        }
+        return Optional.empty();
+    }
+}
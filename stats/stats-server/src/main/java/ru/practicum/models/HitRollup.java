@@ -0,0 +1,30 @@
+package ru.practicum.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class HitRollup {
+    private RollupGranularity granularity;
+
+    private LocalDateTime bucketStart;
+
+    // ключ строки hit_rollups — идентификаторы из словарей apps и endpoints
+    private Integer appId;
+
+    private Integer endpointId;
+
+    // имена заполняются только при чтении, когда словари уже подтянуты к строкам
+    private String app;
+
+    private String uri;
+
+    private Long hits;
+}
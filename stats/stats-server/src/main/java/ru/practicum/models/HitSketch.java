@@ -0,0 +1,25 @@
+package ru.practicum.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class HitSketch {
+    private RollupGranularity granularity;
+
+    private LocalDateTime bucketStart;
+
+    // ключ строки hit_sketches — идентификаторы из словарей apps и endpoints
+    private Integer appId;
+
+    private Integer endpointId;
+
+    private byte[] registers;
+}
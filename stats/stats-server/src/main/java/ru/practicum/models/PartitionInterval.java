@@ -0,0 +1,45 @@
+package ru.practicum.models;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+public enum PartitionInterval {
+    DAY("yyyyMMdd", "day"),
+    MONTH("yyyyMM", "month");
+
+    private final DateTimeFormatter suffixFormat;
+    private final int suffixLength;
+    private final String truncField;
+
+    PartitionInterval(String suffixPattern, String truncField) {
+        this.suffixFormat = DateTimeFormatter.ofPattern(suffixPattern);
+        this.suffixLength = suffixPattern.length();
+        this.truncField = truncField;
+    }
+
+    public LocalDateTime floor(LocalDateTime time) {
+        return switch (this) {
+            case DAY -> time.toLocalDate().atStartOfDay();
+            case MONTH -> time.toLocalDate().withDayOfMonth(1).atStartOfDay();
+        };
+    }
+
+    public LocalDateTime next(LocalDateTime start) {
+        return switch (this) {
+            case DAY -> start.plusDays(1);
+            case MONTH -> start.plusMonths(1);
+        };
+    }
+
+    public String suffix(LocalDateTime start) {
+        return suffixFormat.format(start);
+    }
+
+    public int getSuffixLength() {
+        return suffixLength;
+    }
+
+    public String getTruncField() {
+        return truncField;
+    }
+}
@@ -0,0 +1,31 @@
+package ru.practicum.models;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public enum RollupGranularity {
+    DAY(ChronoUnit.DAYS, "day"),
+    HOUR(ChronoUnit.HOURS, "hour"),
+    MINUTE(ChronoUnit.MINUTES, "minute");
+
+    private final ChronoUnit unit;
+    private final String truncField;
+
+    RollupGranularity(ChronoUnit unit, String truncField) {
+        this.unit = unit;
+        this.truncField = truncField;
+    }
+
+    public LocalDateTime floor(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    public LocalDateTime ceil(LocalDateTime time) {
+        LocalDateTime floor = floor(time);
+        return floor.equals(time) ? floor : floor.plus(1, unit);
+    }
+
+    public String getTruncField() {
+        return truncField;
+    }
+}
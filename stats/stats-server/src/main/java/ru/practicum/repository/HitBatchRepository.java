@@ -0,0 +1,61 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.models.Hit;
+import ru.practicum.models.HitRollup;
+import ru.practicum.models.RollupGranularity;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class HitBatchRepository {
+    private static final String INSERT_HIT = "INSERT INTO hits (app_id, endpoint_id, ip, timestamp) VALUES (?, ?, ?::inet, ?)";
+
+    private static final String UPSERT_ROLLUP = "INSERT INTO hit_rollups (granularity, bucket_start, app_id, endpoint_id, hits) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (granularity, bucket_start, app_id, endpoint_id) DO UPDATE SET hits = hit_rollups.hits + EXCLUDED.hits";
+    private static final String REBUILD_ROLLUP = "INSERT INTO hit_rollups (granularity, bucket_start, app_id, endpoint_id, hits) " +
+            "SELECT ?, date_trunc(?, timestamp), app_id, endpoint_id, COUNT(*) FROM hits " +
+            "GROUP BY 2, 3, 4 " +
+            "ON CONFLICT (granularity, bucket_start, app_id, endpoint_id) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${stats.hits.batch-size:1000}")
+    private int batchSize;
+
+    public int saveAll(List<Hit> hits) {
+        if (hits.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(INSERT_HIT, hits, batchSize, (ps, hit) -> {
+            ps.setInt(1, hit.getAppId());
+            ps.setInt(2, hit.getEndpointId());
+            ps.setString(3, hit.getIp());
+            ps.setTimestamp(4, Timestamp.valueOf(hit.getTimestamp()));
+        });
+        return hits.size();
+    }
+
+    public void upsertRollups(List<HitRollup> rollups) {
+        if (rollups.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_ROLLUP, rollups, batchSize, (ps, rollup) -> {
+            ps.setString(1, rollup.getGranularity().name());
+            ps.setTimestamp(2, Timestamp.valueOf(rollup.getBucketStart()));
+            ps.setInt(3, rollup.getAppId());
+            ps.setInt(4, rollup.getEndpointId());
+            ps.setLong(5, rollup.getHits());
+        });
+    }
+
+    public int rebuildRollups(RollupGranularity granularity) {
+        return jdbcTemplate.update(REBUILD_ROLLUP, granularity.name(), granularity.getTruncField());
+    }
+}
@@ -0,0 +1,51 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+@Repository
+@RequiredArgsConstructor
+public class HitDictionaryRepository {
+    private static final String INSERT_APP = "INSERT INTO apps (name) VALUES (?) ON CONFLICT (name) DO NOTHING RETURNING id";
+    private static final String SELECT_APP = "SELECT id FROM apps WHERE name = ?";
+    private static final String SELECT_ALL_APPS = "SELECT id, name FROM apps";
+
+    private static final String INSERT_ENDPOINT = "INSERT INTO endpoints (uri) VALUES (?) ON CONFLICT (uri) DO NOTHING RETURNING id";
+    private static final String SELECT_ENDPOINT = "SELECT id FROM endpoints WHERE uri = ?";
+    private static final String SELECT_ALL_ENDPOINTS = "SELECT id, uri FROM endpoints";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public int getOrCreateAppId(String name) {
+        return getOrCreate(INSERT_APP, SELECT_APP, name);
+    }
+
+    public int getOrCreateEndpointId(String uri) {
+        return getOrCreate(INSERT_ENDPOINT, SELECT_ENDPOINT, uri);
+    }
+
+    public void forEachApp(BiConsumer<String, Integer> consumer) {
+        jdbcTemplate.query(SELECT_ALL_APPS, rs -> {
+            consumer.accept(rs.getString("name"), rs.getInt("id"));
+        });
+    }
+
+    public void forEachEndpoint(BiConsumer<String, Integer> consumer) {
+        jdbcTemplate.query(SELECT_ALL_ENDPOINTS, rs -> {
+            consumer.accept(rs.getString("uri"), rs.getInt("id"));
+        });
+    }
+
+    // ON CONFLICT DO NOTHING не возвращает id уже существующей строки, её дочитываем отдельно
+    private int getOrCreate(String insertSql, String selectSql, String value) {
+        List<Integer> inserted = jdbcTemplate.queryForList(insertSql, Integer.class, value);
+        if (!inserted.isEmpty()) {
+            return inserted.get(0);
+        }
+        return jdbcTemplate.queryForObject(selectSql, Integer.class, value);
+    }
+}
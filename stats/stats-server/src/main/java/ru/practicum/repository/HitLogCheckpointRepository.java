@@ -0,0 +1,42 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.wal.LogPosition;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+public class HitLogCheckpointRepository {
+    private static final String SELECT_CHECKPOINT = "SELECT segment, position FROM hit_log_checkpoint WHERE instance_id = ?";
+    private static final String CLAIM_LEGACY_CHECKPOINT = "UPDATE hit_log_checkpoint SET instance_id = ?, updated_at = now() " +
+            "WHERE instance_id IS NULL RETURNING segment, position";
+    private static final String UPSERT_CHECKPOINT = "INSERT INTO hit_log_checkpoint (instance_id, segment, position, updated_at) " +
+            "VALUES (?, ?, ?, now()) " +
+            "ON CONFLICT (instance_id) DO UPDATE SET segment = EXCLUDED.segment, position = EXCLUDED.position, " +
+            "updated_at = EXCLUDED.updated_at";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<LogPosition> find(UUID instanceId) {
+        return jdbcTemplate.query(SELECT_CHECKPOINT,
+                        (rs, rowNum) -> new LogPosition(rs.getLong("segment"), rs.getInt("position")), instanceId)
+                .stream()
+                .findFirst();
+    }
+
+    // контрольная точка, сохранённая до появления instance_id, достаётся одному журналу
+    public Optional<LogPosition> claimLegacy(UUID instanceId) {
+        return jdbcTemplate.query(CLAIM_LEGACY_CHECKPOINT,
+                        (rs, rowNum) -> new LogPosition(rs.getLong("segment"), rs.getInt("position")), instanceId)
+                .stream()
+                .findFirst();
+    }
+
+    public void save(UUID instanceId, LogPosition position) {
+        jdbcTemplate.update(UPSERT_CHECKPOINT, instanceId, position.segment(), position.offset());
+    }
+}
@@ -0,0 +1,71 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import ru.practicum.models.HitPartition;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class HitPartitionRepository {
+    private static final String DEFAULT_PARTITION = "hits_default";
+    private static final int ARCHIVE_FETCH_SIZE = 1000;
+
+    private static final String SELECT_PARTITIONS = "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = 'hits'::regclass ORDER BY c.relname";
+    // секции, отключённые архивацией, но не удалённые из-за сбоя
+    private static final String SELECT_DETACHED = "SELECT c.relname FROM pg_class c " +
+            "WHERE c.relkind = 'r' AND c.relname LIKE 'hits\\_%' AND pg_table_is_visible(c.oid) " +
+            "AND NOT EXISTS (SELECT 1 FROM pg_inherits i WHERE i.inhrelid = c.oid) ORDER BY c.relname";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<String> partitionNames() {
+        return jdbcTemplate.queryForList(SELECT_PARTITIONS, String.class);
+    }
+
+    public List<String> detachedPartitionNames() {
+        return jdbcTemplate.queryForList(SELECT_DETACHED, String.class);
+    }
+
+    // строки, успевшие попасть в секцию по умолчанию, переносятся в новую до её подключения
+    public int createPartition(HitPartition partition) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition.name() +
+                " (LIKE hits INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION +
+                        " WHERE timestamp >= ? AND timestamp < ? RETURNING id, app_id, endpoint_id, ip, timestamp) " +
+                        "INSERT INTO " + partition.name() + " (id, app_id, endpoint_id, ip, timestamp) SELECT * FROM moved",
+                Timestamp.valueOf(partition.from()), Timestamp.valueOf(partition.to()));
+        jdbcTemplate.execute("ALTER TABLE hits ATTACH PARTITION " + partition.name() +
+                " FOR VALUES FROM ('" + Timestamp.valueOf(partition.from()) + "') TO ('" + Timestamp.valueOf(partition.to()) + "')");
+        return moved;
+    }
+
+    public List<LocalDateTime> defaultPartitionStarts(String truncField) {
+        return jdbcTemplate.queryForList("SELECT DISTINCT date_trunc('" + truncField + "', timestamp) FROM " + DEFAULT_PARTITION,
+                        Timestamp.class).stream()
+                .map(Timestamp::toLocalDateTime)
+                .toList();
+    }
+
+    public void forEachRow(HitPartition partition, RowCallbackHandler handler) {
+        JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(ARCHIVE_FETCH_SIZE);
+        streaming.query("SELECT h.id, a.name AS app, e.uri AS uri, host(h.ip) AS ip, h.timestamp FROM " + partition.name() + " h " +
+                "JOIN apps a ON a.id = h.app_id JOIN endpoints e ON e.id = h.endpoint_id " +
+                "ORDER BY h.timestamp, h.id", handler);
+    }
+
+    public void detachPartition(HitPartition partition) {
+        jdbcTemplate.execute("ALTER TABLE hits DETACH PARTITION " + partition.name());
+    }
+
+    public void dropDetached(HitPartition partition) {
+        jdbcTemplate.execute("DROP TABLE " + partition.name());
+    }
+}
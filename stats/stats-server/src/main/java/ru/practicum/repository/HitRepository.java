@@ -1,35 +1,62 @@
 package ru.practicum.repository;
 
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 import ru.practicum.dto.StatsDto;
-import ru.practicum.models.Hit;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+// Группировка идёт по целым app_id/endpoint_id, строки из словарей подтягиваются к уже агрегированным строкам
 @Repository
-public interface HitRepository extends JpaRepository<Hit, Long> {
-
-    @Query("SELECT new ru.practicum.dto.StatsDto(h.app, h.uri, COUNT(h.ip)) " +
-            "FROM Hit h " +
-            "WHERE h.timestamp BETWEEN :start AND :end " +
-            "AND (:uris IS NULL OR h.uri IN :uris) " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY COUNT(h.ip) DESC")
-    List<StatsDto> getStats(@Param("start") LocalDateTime start,
-                            @Param("end") LocalDateTime end,
-                            @Param("uris") List<String> uris);
-
-    @Query("SELECT new ru.practicum.dto.StatsDto(h.app, h.uri, COUNT(DISTINCT h.ip)) " +
-            "FROM Hit h " +
-            "WHERE h.timestamp BETWEEN :start AND :end " +
-            "AND (:uris IS NULL OR h.uri IN :uris) " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY COUNT(DISTINCT h.ip) DESC")
-    List<StatsDto> getUniqueStats(@Param("start") LocalDateTime start,
-                                  @Param("end") LocalDateTime end,
-                                  @Param("uris") List<String> uris);
+@RequiredArgsConstructor
+public class HitRepository {
+    static final String AGGREGATE = "SELECT a.name AS app, e.uri AS uri, s.hits FROM (" +
+            "SELECT app_id, endpoint_id, %s AS hits FROM hits " +
+            "WHERE timestamp >= ? AND timestamp %s ?%s " +
+            "GROUP BY app_id, endpoint_id) s " +
+            "JOIN apps a ON a.id = s.app_id " +
+            "JOIN endpoints e ON e.id = s.endpoint_id";
+    static final String ORDER_BY_HITS = " ORDER BY s.hits DESC";
+
+    private static final RowMapper<StatsDto> STATS_MAPPER = (rs, rowNum) ->
+            new StatsDto(rs.getString("app"), rs.getString("uri"), rs.getLong("hits"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<StatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return aggregate("COUNT(*)", start, "<=", end, uris, ORDER_BY_HITS);
+    }
+
+    public List<StatsDto> getUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return aggregate("COUNT(DISTINCT ip)", start, "<=", end, uris, ORDER_BY_HITS);
+    }
+
+    public List<StatsDto> getStatsInRange(LocalDateTime from, LocalDateTime to, List<String> uris) {
+        return aggregate("COUNT(*)", from, "<", to, uris, "");
+    }
+
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM hits", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    // фильтр по uri добавляется только при наличии списка: (:uris IS NULL OR ...) в общем плане отключал индекс
+    private List<StatsDto> aggregate(String hits, LocalDateTime from, String upperBound, LocalDateTime to,
+                                     List<String> uris, String orderBy) {
+        List<Object> args = new ArrayList<>(List.of(Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        String uriFilter = "";
+        if (uris != null && !uris.isEmpty()) {
+            uriFilter = " AND endpoint_id IN (SELECT id FROM endpoints WHERE uri IN (" +
+                    String.join(", ", Collections.nCopies(uris.size(), "?")) + "))";
+            args.addAll(uris);
+        }
+        String sql = String.format(AGGREGATE, hits, upperBound, uriFilter) + orderBy;
+        return jdbcTemplate.query(sql, STATS_MAPPER, args.toArray());
+    }
 }
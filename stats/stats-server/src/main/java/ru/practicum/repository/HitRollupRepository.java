@@ -0,0 +1,63 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.practicum.dto.StatsDto;
+import ru.practicum.models.HitRollup;
+import ru.practicum.models.RollupGranularity;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Как и в HitRepository, суммы считаются по app_id/endpoint_id, имена подтягиваются к агрегированным строкам
+@Repository
+@RequiredArgsConstructor
+public class HitRollupRepository {
+    private static final String SUM_HITS = "SELECT a.name AS app, e.uri AS uri, s.hits FROM (" +
+            "SELECT app_id, endpoint_id, SUM(hits) AS hits FROM hit_rollups " +
+            "WHERE granularity = ? AND bucket_start >= ? AND bucket_start < ?%s " +
+            "GROUP BY app_id, endpoint_id) s " +
+            "JOIN apps a ON a.id = s.app_id " +
+            "JOIN endpoints e ON e.id = s.endpoint_id";
+    private static final String SELECT_FROM = "SELECT r.bucket_start, a.name AS app, e.uri AS uri, r.hits FROM hit_rollups r " +
+            "JOIN apps a ON a.id = r.app_id " +
+            "JOIN endpoints e ON e.id = r.endpoint_id " +
+            "WHERE r.granularity = ? AND r.bucket_start >= ?";
+
+    private static final RowMapper<StatsDto> STATS_MAPPER = (rs, rowNum) ->
+            new StatsDto(rs.getString("app"), rs.getString("uri"), rs.getLong("hits"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<HitRollup> findFrom(RollupGranularity granularity, LocalDateTime from) {
+        return jdbcTemplate.query(SELECT_FROM, (rs, rowNum) -> HitRollup.builder()
+                        .granularity(granularity)
+                        .bucketStart(rs.getTimestamp("bucket_start").toLocalDateTime())
+                        .app(rs.getString("app"))
+                        .uri(rs.getString("uri"))
+                        .hits(rs.getLong("hits"))
+                        .build(),
+                granularity.name(), Timestamp.valueOf(from));
+    }
+
+    public List<StatsDto> sumHits(RollupGranularity granularity, LocalDateTime from, LocalDateTime to, List<String> uris) {
+        List<Object> args = new ArrayList<>(List.of(granularity.name(), Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        String uriFilter = "";
+        if (uris != null && !uris.isEmpty()) {
+            uriFilter = " AND endpoint_id IN (SELECT id FROM endpoints WHERE uri IN (" +
+                    String.join(", ", Collections.nCopies(uris.size(), "?")) + "))";
+            args.addAll(uris);
+        }
+        return jdbcTemplate.query(String.format(SUM_HITS, uriFilter), STATS_MAPPER, args.toArray());
+    }
+
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM hit_rollups", Long.class);
+        return count == null ? 0 : count;
+    }
+}
@@ -0,0 +1,108 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import ru.practicum.models.HitSketch;
+import ru.practicum.models.RollupGranularity;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class HitSketchRepository {
+    // скетчи сливаются в памяти приложения, поэтому все писатели hit_sketches, в том числе с других
+    // экземпляров, идут по очереди: между чтением регистров и записью строку никто не перезапишет
+    private static final String LOCK_WRITERS = "SELECT pg_advisory_xact_lock(hashtext('hit_sketches'))";
+    private static final String SELECT_BY_KEYS = "SELECT granularity, bucket_start, app_id, endpoint_id, registers " +
+            "FROM hit_sketches WHERE (granularity, bucket_start, app_id, endpoint_id) IN (%s)";
+    private static final String UPSERT = "INSERT INTO hit_sketches (granularity, bucket_start, app_id, endpoint_id, registers) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (granularity, bucket_start, app_id, endpoint_id) DO UPDATE SET registers = EXCLUDED.registers";
+    private static final String SELECT_RANGE = "SELECT a.name AS app, e.uri AS uri, s.registers FROM hit_sketches s " +
+            "JOIN apps a ON a.id = s.app_id JOIN endpoints e ON e.id = s.endpoint_id " +
+            "WHERE s.granularity = ? AND s.bucket_start >= ? AND s.bucket_start < ?";
+    private static final String SELECT_RAW_IPS = "SELECT DISTINCT a.name AS app, e.uri AS uri, host(h.ip) AS ip FROM hits h " +
+            "JOIN apps a ON a.id = h.app_id JOIN endpoints e ON e.id = h.endpoint_id " +
+            "WHERE h.timestamp >= ? AND h.timestamp < ?";
+    private static final String SELECT_ALL_RAW_IPS = "SELECT DISTINCT date_trunc(?, timestamp) AS bucket, " +
+            "app_id, endpoint_id, host(ip) AS ip FROM hits WHERE id > ? " +
+            "ORDER BY bucket, app_id, endpoint_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${stats.hits.batch-size:1000}")
+    private int batchSize;
+
+    public void lockWriters() {
+        jdbcTemplate.queryForList(LOCK_WRITERS);
+    }
+
+    public List<HitSketch> findAll(List<HitSketch> keys) {
+        List<HitSketch> found = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += batchSize) {
+            List<HitSketch> chunk = keys.subList(from, Math.min(from + batchSize, keys.size()));
+            List<Object> args = new ArrayList<>(chunk.size() * 4);
+            for (HitSketch key : chunk) {
+                args.add(key.getGranularity().name());
+                args.add(Timestamp.valueOf(key.getBucketStart()));
+                args.add(key.getAppId());
+                args.add(key.getEndpointId());
+            }
+            String sql = String.format(SELECT_BY_KEYS, String.join(", ", Collections.nCopies(chunk.size(), "(?, ?, ?, ?)")));
+            found.addAll(jdbcTemplate.query(sql, (rs, rowNum) -> HitSketch.builder()
+                    .granularity(RollupGranularity.valueOf(rs.getString("granularity")))
+                    .bucketStart(rs.getTimestamp("bucket_start").toLocalDateTime())
+                    .appId(rs.getInt("app_id"))
+                    .endpointId(rs.getInt("endpoint_id"))
+                    .registers(rs.getBytes("registers"))
+                    .build(), args.toArray()));
+        }
+        return found;
+    }
+
+    public void upsertAll(List<HitSketch> sketches) {
+        jdbcTemplate.batchUpdate(UPSERT, sketches, batchSize, (ps, sketch) -> {
+            ps.setString(1, sketch.getGranularity().name());
+            ps.setTimestamp(2, Timestamp.valueOf(sketch.getBucketStart()));
+            ps.setInt(3, sketch.getAppId());
+            ps.setInt(4, sketch.getEndpointId());
+            ps.setBytes(5, sketch.getRegisters());
+        });
+    }
+
+    public void forEachInRange(RollupGranularity granularity, LocalDateTime from, LocalDateTime to,
+                               List<String> uris, RowCallbackHandler handler) {
+        List<Object> args = new ArrayList<>(List.of(granularity.name(), Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        jdbcTemplate.query(withUris(SELECT_RANGE, "s", uris, args), handler, args.toArray());
+    }
+
+    public void forEachRawIp(LocalDateTime from, LocalDateTime to, List<String> uris, RowCallbackHandler handler) {
+        List<Object> args = new ArrayList<>(List.of(Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        jdbcTemplate.query(withUris(SELECT_RAW_IPS, "h", uris, args), handler, args.toArray());
+    }
+
+    public void forEachRawIpByBucket(RollupGranularity granularity, long afterHitId, RowCallbackHandler handler) {
+        jdbcTemplate.query(SELECT_ALL_RAW_IPS, handler, granularity.getTruncField(), afterHitId);
+    }
+
+    public long count() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM hit_sketches", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    private String withUris(String sql, String alias, List<String> uris, List<Object> args) {
+        if (uris == null || uris.isEmpty()) {
+            return sql;
+        }
+        args.addAll(uris);
+        return sql + " AND " + alias + ".endpoint_id IN (SELECT id FROM endpoints WHERE uri IN (" +
+                String.join(", ", Collections.nCopies(uris.size(), "?")) + "))";
+    }
+}
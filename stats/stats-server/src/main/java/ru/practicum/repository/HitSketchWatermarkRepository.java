@@ -0,0 +1,42 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+@RequiredArgsConstructor
+public class HitSketchWatermarkRepository {
+    private static final String SELECT_MIN = "SELECT MIN(last_hit_id) FROM hit_sketch_watermarks";
+    private static final String UPSERT = "INSERT INTO hit_sketch_watermarks (instance_id, last_hit_id, updated_at) " +
+            "VALUES (?, ?, now()) " +
+            "ON CONFLICT (instance_id) DO UPDATE SET last_hit_id = EXCLUDED.last_hit_id, updated_at = EXCLUDED.updated_at";
+    private static final String DELETE_STALE = "DELETE FROM hit_sketch_watermarks WHERE instance_id <> ? AND updated_at < ?";
+    // последний выданный id; до первого nextval last_value ещё не выдан
+    private static final String SELECT_LAST_HIT_ID = "SELECT CASE WHEN is_called THEN last_value ELSE last_value - 1 END " +
+            "FROM hits_id_seq";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<Long> findMin() {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(SELECT_MIN, Long.class));
+    }
+
+    public void save(UUID instanceId, long lastHitId) {
+        jdbcTemplate.update(UPSERT, instanceId, lastHitId);
+    }
+
+    public int deleteStale(UUID instanceId, LocalDateTime before) {
+        return jdbcTemplate.update(DELETE_STALE, instanceId, Timestamp.valueOf(before));
+    }
+
+    public long lastHitId() {
+        Long id = jdbcTemplate.queryForObject(SELECT_LAST_HIT_ID, Long.class);
+        return id == null ? 0 : id;
+    }
+}
@@ -0,0 +1,86 @@
+package ru.practicum.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.repository.HitDictionaryRepository;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Id приложений и URI из словарей apps и endpoints. Кэш ограничен по размеру: uri приходит от клиента,
+ * и произвольные строки запроса не должны расти в памяти без предела. Источник истины - таблицы словарей,
+ * промах кэша читает или создаёт id в базе.
+ */
+@Service
+@Slf4j
+@DependsOnDatabaseInitialization
+public class HitDictionaryService {
+    private final HitDictionaryRepository hitDictionaryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxApps;
+    private final int maxEndpoints;
+
+    private final Cache<String, Integer> appIds;
+    private final Cache<String, Integer> endpointIds;
+
+    public HitDictionaryService(HitDictionaryRepository hitDictionaryRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${stats.dictionary.max-apps:1000}") int maxApps,
+                                @Value("${stats.dictionary.max-endpoints:100000}") int maxEndpoints) {
+        this.hitDictionaryRepository = hitDictionaryRepository;
+        // новый id фиксируется сразу: откат транзакции вставки хитов не должен оставить в кэше несуществующий id
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxApps = maxApps;
+        this.maxEndpoints = maxEndpoints;
+        this.appIds = Caffeine.newBuilder().maximumSize(maxApps).build();
+        this.endpointIds = Caffeine.newBuilder().maximumSize(maxEndpoints).build();
+    }
+
+    @PostConstruct
+    public void preload() {
+        hitDictionaryRepository.forEachApp(upTo(appIds, maxApps));
+        hitDictionaryRepository.forEachEndpoint(upTo(endpointIds, maxEndpoints));
+        log.info("Hit dictionaries loaded: apps={}, endpoints={}", appIds.estimatedSize(), endpointIds.estimatedSize());
+    }
+
+    public int appId(String app) {
+        Integer id = appIds.getIfPresent(app);
+        if (id != null) {
+            return id;
+        }
+        // не get(key, loader): запрос к базе под блокировкой бакета пинил бы виртуальный поток
+        id = transactionTemplate.execute(status -> hitDictionaryRepository.getOrCreateAppId(app));
+        appIds.put(app, id);
+        return id;
+    }
+
+    public int endpointId(String uri) {
+        Integer id = endpointIds.getIfPresent(uri);
+        if (id != null) {
+            return id;
+        }
+        id = transactionTemplate.execute(status -> hitDictionaryRepository.getOrCreateEndpointId(uri));
+        endpointIds.put(uri, id);
+        return id;
+    }
+
+    // прогрев не заполняет кэш сверх предела, остальные id читаются из базы по промаху
+    private static BiConsumer<String, Integer> upTo(Cache<String, Integer> cache, int max) {
+        int[] loaded = {0};
+        return (name, id) -> {
+            if (loaded[0] < max) {
+                cache.put(name, id);
+                loaded[0]++;
+            }
+        };
+    }
+}
@@ -0,0 +1,208 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.dto.HitDto;
+import ru.practicum.repository.HitLogCheckpointRepository;
+import ru.practicum.wal.FsyncPolicy;
+import ru.practicum.wal.LogPosition;
+import ru.practicum.wal.LogRecord;
+import ru.practicum.wal.SegmentLog;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Журнал предзаписи хитов: POST /hit подтверждается после дозаписи в локальный журнал,
+ * а в hits хиты переносит {@link HitLogWriter}. Позиция переноса хранится в hit_log_checkpoint
+ * в транзакции вставки, поэтому после рестарта журнал дочитывается с того же места без потерь и дублей.
+ * <p>
+ * Номера сегментов имеют смысл только внутри своего каталога, поэтому контрольная точка хранится
+ * по идентификатору журнала из файла {@code instance-id}: у каждой реплики свой каталог и своя строка.
+ */
+@Service
+@Slf4j
+@DependsOnDatabaseInitialization
+public class HitLogService {
+    private static final String INSTANCE_ID_FILE = "instance-id";
+
+    private final HitLogCheckpointRepository checkpointRepository;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Path dir;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final FsyncPolicy fsync;
+    private final long fsyncIntervalNanos;
+
+    private final Counter appendedCounter;
+    private final Counter bypassedCounter;
+
+    private SegmentLog segmentLog;
+    private UUID instanceId;
+    private volatile LogPosition checkpoint = LogPosition.START;
+    private volatile long lastSyncNanos = System.nanoTime();
+
+    public HitLogService(HitLogCheckpointRepository checkpointRepository,
+                         MeterRegistry meterRegistry,
+                         @Value("${stats.wal.enabled:false}") boolean enabled,
+                         @Value("${stats.wal.dir:wal}") Path dir,
+                         @Value("${stats.wal.segment-size:16MB}") DataSize segmentSize,
+                         @Value("${stats.wal.max-segments:64}") int maxSegments,
+                         @Value("${stats.wal.fsync:INTERVAL}") FsyncPolicy fsync,
+                         @Value("${stats.wal.fsync-interval:1s}") Duration fsyncInterval) {
+        this.checkpointRepository = checkpointRepository;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.dir = dir;
+        this.segmentSize = (int) segmentSize.toBytes();
+        this.maxSegments = maxSegments;
+        this.fsync = fsync;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+
+        this.appendedCounter = Counter.builder("stats.wal.appended").register(meterRegistry);
+        this.bypassedCounter = Counter.builder("stats.wal.bypassed")
+                .description("Хиты, записанные в базу мимо заполненного журнала")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        instanceId = resolveInstanceId();
+        checkpoint = checkpointRepository.find(instanceId).orElse(LogPosition.START);
+        segmentLog = SegmentLog.open(dir, segmentSize, maxSegments, fsync, checkpoint);
+        Gauge.builder("stats.wal.segments", segmentLog, SegmentLog::segmentCount).register(meterRegistry);
+        Gauge.builder("stats.wal.pending.bytes", this, service -> service.segmentLog.pendingBytes(service.checkpoint))
+                .description("Байты журнала, ещё не перенесённые в базу")
+                .register(meterRegistry);
+        log.info("Hit log opened: dir={}, instance={}, segments={}, pendingBytes={}, checkpoint={}",
+                dir.toAbsolutePath(), instanceId, segmentLog.segmentCount(), segmentLog.pendingBytes(checkpoint), checkpoint);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Дописывает хиты в журнал. false означает, что журнал выключен или заполнен
+     * и хиты надо сохранить в базу синхронно.
+     */
+    public boolean append(List<HitDto> hits) {
+        if (!enabled) {
+            return false;
+        }
+        if (!segmentLog.append(hits.stream().map(HitLogService::encode).toList())) {
+            bypassedCounter.increment(hits.size());
+            return false;
+        }
+        appendedCounter.increment(hits.size());
+        return true;
+    }
+
+    public Batch read(LogPosition from, int max) {
+        List<LogRecord> records = segmentLog.read(from, max);
+        if (records.isEmpty()) {
+            return new Batch(List.of(), from);
+        }
+        List<HitDto> hits = records.stream().map(record -> decode(record.payload())).toList();
+        return new Batch(hits, records.get(records.size() - 1).next());
+    }
+
+    // вызывается после коммита контрольной точки в базе
+    public void release(LogPosition position) {
+        checkpoint = position;
+        segmentLog.release(position);
+    }
+
+    public LogPosition getCheckpoint() {
+        return checkpoint;
+    }
+
+    public UUID getInstanceId() {
+        return instanceId;
+    }
+
+    public void syncIfDue() {
+        if (fsync == FsyncPolicy.INTERVAL && System.nanoTime() - lastSyncNanos >= fsyncIntervalNanos) {
+            segmentLog.sync();
+            lastSyncNanos = System.nanoTime();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (segmentLog != null) {
+            segmentLog.sync();
+        }
+    }
+
+    /**
+     * Читает идентификатор журнала из каталога или создаёт новый. Каталог с сегментами, но без идентификатора,
+     * записан до появления идентификаторов: ему достаётся прежняя общая контрольная точка, если её ещё никто не забрал.
+     */
+    private UUID resolveInstanceId() {
+        Path file = dir.resolve(INSTANCE_ID_FILE);
+        try {
+            if (Files.exists(file)) {
+                return UUID.fromString(Files.readString(file, StandardCharsets.US_ASCII).trim());
+            }
+            Files.createDirectories(dir);
+            UUID id = UUID.randomUUID();
+            if (SegmentLog.hasSegments(dir)) {
+                checkpointRepository.claimLegacy(id);
+            }
+            Path tmp = dir.resolve(INSTANCE_ID_FILE + ".tmp");
+            Files.writeString(tmp, id.toString(), StandardCharsets.US_ASCII);
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            return id;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("Не удалось прочитать идентификатор журнала хитов в " + dir, e);
+        }
+    }
+
+    private static byte[] encode(HitDto hit) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(hit.getApp());
+            out.writeUTF(hit.getUri());
+            out.writeUTF(hit.getIp());
+            out.writeUTF(hit.getTime());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Хит не помещается в запись журнала: " + hit, e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static HitDto decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            return new HitDto(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Повреждённая запись журнала хитов", e);
+        }
+    }
+
+    public record Batch(List<HitDto> hits, LogPosition next) {
+    }
+}
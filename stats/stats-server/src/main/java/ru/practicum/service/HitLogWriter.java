@@ -0,0 +1,144 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import ru.practicum.wal.LogPosition;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Фоновый перенос хитов из журнала в базу пачками по {@code stats.hits.batch-size}.
+ * Пока база недоступна, хиты копятся в журнале и переносятся после её возвращения.
+ */
+@Service
+@Slf4j
+public class HitLogWriter {
+    private final HitLogService hitLogService;
+    private final StatsService statsService;
+    private final int batchSize;
+    private final long idleNanos;
+    private final long retryNanos;
+
+    private final Counter flushedCounter;
+    private final Counter failedCounter;
+    private final Counter skippedCounter;
+    private final Timer flushTimer;
+
+    private Thread writer;
+    private volatile boolean running;
+    private LogPosition position;
+
+    public HitLogWriter(HitLogService hitLogService,
+                        StatsService statsService,
+                        MeterRegistry meterRegistry,
+                        @Value("${stats.hits.batch-size:1000}") int batchSize,
+                        @Value("${stats.wal.flush-interval:200ms}") Duration flushInterval,
+                        @Value("${stats.wal.retry-interval:5s}") Duration retryInterval) {
+        this.hitLogService = hitLogService;
+        this.statsService = statsService;
+        this.batchSize = batchSize;
+        this.idleNanos = flushInterval.toNanos();
+        this.retryNanos = retryInterval.toNanos();
+
+        this.flushedCounter = Counter.builder("stats.wal.flushed").register(meterRegistry);
+        this.failedCounter = Counter.builder("stats.wal.flush.failed").register(meterRegistry);
+        this.skippedCounter = Counter.builder("stats.wal.skipped")
+                .description("Записи журнала, отвергнутые базой и пропущенные")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("stats.wal.flush")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!hitLogService.isEnabled()) {
+            return;
+        }
+        position = hitLogService.getCheckpoint();
+        running = true;
+        writer = new Thread(this::runWriteLoop, "stats-hit-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.NANOSECONDS.toMillis(retryNanos) + 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWriteLoop() {
+        while (running) {
+            try {
+                hitLogService.syncIfDue();
+                HitLogService.Batch batch = hitLogService.read(position, batchSize);
+                if (batch.hits().isEmpty()) {
+                    LockSupport.parkNanos(idleNanos);
+                } else if (!write(batch)) {
+                    LockSupport.parkNanos(retryNanos);
+                }
+            } catch (RuntimeException e) {
+                // сбой fsync или чтения журнала не должен останавливать поток: хиты продолжают копиться в журнале
+                failedCounter.increment();
+                log.error("Hit log transfer failed, will retry at {}", position, e);
+                LockSupport.parkNanos(retryNanos);
+            }
+        }
+    }
+
+    private boolean write(HitLogService.Batch batch) {
+        long startNanos = System.nanoTime();
+        try {
+            try {
+                statsService.saveLogged(batch.hits(), batch.next());
+                position = batch.next();
+            } catch (DataIntegrityViolationException e) {
+                // одна запись не должна навсегда останавливать перенос: пачка проходится по одной
+                writeOneByOne(batch.hits().size());
+            }
+            hitLogService.release(position);
+            flushedCounter.increment(batch.hits().size());
+            return true;
+        } catch (Exception e) {
+            failedCounter.increment(batch.hits().size());
+            log.warn("Hits not transferred from log to database, will retry: count={}, error={}", batch.hits().size(), e.getMessage());
+            return false;
+        } finally {
+            flushTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void writeOneByOne(int count) {
+        for (int i = 0; i < count; i++) {
+            HitLogService.Batch single = hitLogService.read(position, 1);
+            try {
+                statsService.saveLogged(single.hits(), single.next());
+            } catch (DataIntegrityViolationException e) {
+                log.error("Logged hit rejected by database and skipped: {} ({})",
+                        single.hits(), e.getMostSpecificCause().getMessage());
+                statsService.saveLogged(List.of(), single.next());
+                skippedCounter.increment();
+            }
+            position = single.next();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package ru.practicum.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.models.HitPartition;
+import ru.practicum.models.PartitionInterval;
+import ru.practicum.repository.HitPartitionRepository;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+@Service
+@Slf4j
+@DependsOnDatabaseInitialization
+public class HitPartitionService {
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final HitPartitionRepository hitPartitionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final PartitionInterval interval;
+    private final int premake;
+    private final Duration retention;
+    private final Path archiveDir;
+
+    private final Set<String> knownPartitions = ConcurrentHashMap.newKeySet();
+
+    public HitPartitionService(HitPartitionRepository hitPartitionRepository,
+                               DataSource dataSource,
+                               @Value("${stats.hits.partition.interval:MONTH}") PartitionInterval interval,
+                               @Value("${stats.hits.partition.premake:2}") int premake,
+                               @Value("${stats.hits.retention:0d}") Duration retention,
+                               @Value("${stats.hits.archive-dir:archive}") Path archiveDir) {
+        this.hitPartitionRepository = hitPartitionRepository;
+        // свой менеджер транзакций: сервис поднимается раньше JPA, а DDL не должен жить в транзакции вставки хитов
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.interval = interval;
+        this.premake = premake;
+        this.retention = retention;
+        this.archiveDir = archiveDir;
+    }
+
+    @PostConstruct
+    public void init() {
+        knownPartitions.addAll(hitPartitionRepository.partitionNames());
+        maintain();
+    }
+
+    @Scheduled(initialDelayString = "${stats.hits.partition.maintenance-interval:PT1H}",
+            fixedDelayString = "${stats.hits.partition.maintenance-interval:PT1H}")
+    public void maintain() {
+        try {
+            LocalDateTime start = interval.floor(LocalDateTime.now());
+            for (int i = 0; i <= premake; i++) {
+                ensurePartition(HitPartition.of(interval, start));
+                start = interval.next(start);
+            }
+            adoptDefaultRows();
+            archiveExpired();
+        } catch (Exception e) {
+            log.warn("Hits partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    // вставка хитов DDL не делает: хиты вне заранее созданных секций ложатся в секцию по умолчанию
+    // и переезжают в свою секцию здесь, вне транзакции вставки
+    private void adoptDefaultRows() {
+        for (LocalDateTime start : hitPartitionRepository.defaultPartitionStarts(interval.getTruncField())) {
+            HitPartition partition = HitPartition.of(interval, start);
+            try {
+                ensurePartition(partition);
+            } catch (Exception e) {
+                log.warn("Hits partition {} not created: {}", partition.name(), e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void ensurePartition(HitPartition partition) {
+        if (knownPartitions.contains(partition.name())) {
+            return;
+        }
+        Integer moved = transactionTemplate.execute(status -> hitPartitionRepository.createPartition(partition));
+        knownPartitions.add(partition.name());
+        log.info("Hits partition created: {} [{}, {}), moved from default: {}",
+                partition.name(), partition.from(), partition.to(), moved);
+    }
+
+    private void archiveExpired() throws IOException {
+        if (retention.isZero() || retention.isNegative()) {
+            return;
+        }
+        // сначала секции, отключённые прошлым запуском, который упал до удаления
+        for (String name : hitPartitionRepository.detachedPartitionNames()) {
+            Optional<HitPartition> detached = HitPartition.parse(name);
+            if (detached.isPresent()) {
+                exportAndDrop(detached.get());
+            }
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        for (String name : hitPartitionRepository.partitionNames()) {
+            Optional<HitPartition> partition = HitPartition.parse(name).filter(p -> !p.to().isAfter(cutoff));
+            if (partition.isPresent()) {
+                archive(partition.get());
+            }
+        }
+    }
+
+    // секция сначала отключается от hits: поздний хит за её диапазон после этого ложится в hits_default,
+    // пересоздаёт секцию и архивируется в следующий раз, а выгружается и удаляется уже никем не изменяемая таблица.
+    // При сбое выгрузки отключённая секция остаётся в базе и дочитывается следующим запуском
+    private void archive(HitPartition partition) throws IOException {
+        transactionTemplate.executeWithoutResult(status -> hitPartitionRepository.detachPartition(partition));
+        knownPartitions.remove(partition.name());
+        exportAndDrop(partition);
+    }
+
+    // сначала файл, потом DROP. Секция с тем же именем может архивироваться повторно,
+    // поэтому у каждого архива свой суффикс и существующий файл никогда не перезаписывается
+    private void exportAndDrop(HitPartition partition) throws IOException {
+        Files.createDirectories(archiveDir);
+        Path target = archiveTarget(partition);
+        Path tmp = archiveDir.resolve(target.getFileName() + ".tmp");
+
+        long rows;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(tmp)), StandardCharsets.UTF_8))) {
+            writer.write("id,app,uri,ip,timestamp\n");
+            long[] count = {0};
+            transactionTemplate.executeWithoutResult(status -> hitPartitionRepository.forEachRow(partition, rs -> {
+                try {
+                    writer.write(rs.getLong("id") + "," + csv(rs.getString("app")) + "," + csv(rs.getString("uri")) + ","
+                            + csv(rs.getString("ip")) + "," + TIMESTAMP_FORMAT.format(rs.getTimestamp("timestamp").toLocalDateTime()) + "\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            }));
+            rows = count[0];
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+
+        transactionTemplate.executeWithoutResult(status -> hitPartitionRepository.dropDetached(partition));
+        log.info("Hits partition archived: {}, rows={}, file={}", partition.name(), rows, target);
+    }
+
+    private Path archiveTarget(HitPartition partition) {
+        long stamp = System.currentTimeMillis();
+        Path target;
+        do {
+            target = archiveDir.resolve(partition.name() + "-" + stamp++ + ".csv.gz");
+        } while (Files.exists(target));
+        return target;
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    // секции под текущие данные создаются после миграций, но до того, как Hibernate начнёт сверять схему
+    @Component
+    static class HitsBeforeEntityManager extends EntityManagerFactoryDependsOnPostProcessor {
+        HitsBeforeEntityManager() {
+            super("hitPartitionService");
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ru.practicum.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.practicum.dto.StatsDto;
+import ru.practicum.models.Hit;
+import ru.practicum.models.HitRollup;
+import ru.practicum.models.RollupGranularity;
+import ru.practicum.repository.HitBatchRepository;
+import ru.practicum.repository.HitRepository;
+import ru.practicum.repository.HitRollupRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HitRollupService {
+    private static final RollupGranularity[] GRANULARITIES = RollupGranularity.values();
+
+    private final HitRollupRepository hitRollupRepository;
+    private final HitRepository hitRepository;
+    private final HitBatchRepository hitBatchRepository;
+
+    @PostConstruct
+    public void backfill() {
+        if (hitRollupRepository.count() > 0 || hitRepository.count() == 0) {
+            return;
+        }
+        for (RollupGranularity granularity : GRANULARITIES) {
+            int rows = hitBatchRepository.rebuildRollups(granularity);
+            log.info("Rollups rebuilt from raw hits: granularity={}, buckets={}", granularity, rows);
+        }
+    }
+
+    public void record(List<Hit> hits) {
+        Map<RollupKey, Long> counts = new HashMap<>();
+        for (Hit hit : hits) {
+            for (RollupGranularity granularity : GRANULARITIES) {
+                RollupKey key = new RollupKey(granularity, granularity.floor(hit.getTimestamp()),
+                        hit.getAppId(), hit.getEndpointId());
+                counts.merge(key, 1L, Long::sum);
+            }
+        }
+
+        List<HitRollup> rollups = counts.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(RollupKey.ORDER))
+                .map(entry -> HitRollup.builder()
+                        .granularity(entry.getKey().granularity())
+                        .bucketStart(entry.getKey().bucketStart())
+                        .appId(entry.getKey().appId())
+                        .endpointId(entry.getKey().endpointId())
+                        .hits(entry.getValue())
+                        .build())
+                .toList();
+        hitBatchRepository.upsertRollups(rollups);
+    }
+
+    public List<StatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        Map<String, StatsDto> merged = new HashMap<>();
+        for (TimeRange range : TimeRange.plan(start, end.plusSeconds(1), GRANULARITIES)) {
+            List<StatsDto> part = range.isRaw()
+                    ? hitRepository.getStatsInRange(range.from(), range.to(), uris)
+                    : hitRollupRepository.sumHits(range.granularity(), range.from(), range.to(), uris);
+            for (StatsDto stats : part) {
+                merged.merge(stats.getApp() + '\n' + stats.getUri(), stats,
+                        (a, b) -> new StatsDto(a.getApp(), a.getUri(), a.getHits() + b.getHits()));
+            }
+        }
+        List<StatsDto> result = new ArrayList<>(merged.values());
+        result.sort(Comparator.comparing(StatsDto::getHits).reversed());
+        return result;
+    }
+
+    private record RollupKey(RollupGranularity granularity, LocalDateTime bucketStart, int appId, int endpointId) {
+        private static final Comparator<RollupKey> ORDER = Comparator.comparing(RollupKey::granularity)
+                .thenComparing(RollupKey::bucketStart)
+                .thenComparingInt(RollupKey::appId)
+                .thenComparingInt(RollupKey::endpointId);
+    }
+}
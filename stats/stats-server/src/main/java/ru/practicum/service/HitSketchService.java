@@ -0,0 +1,349 @@
+package ru.practicum.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dto.StatsDto;
+import ru.practicum.models.Hit;
+import ru.practicum.models.HitSketch;
+import ru.practicum.models.RollupGranularity;
+import ru.practicum.repository.HitRepository;
+import ru.practicum.repository.HitSketchRepository;
+import ru.practicum.repository.HitSketchWatermarkRepository;
+import ru.practicum.sketch.HyperLogLog;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Скетчи уникальных ip копятся в памяти и раз в stats.unique.sketch.flush-interval сливаются с базой
+ * одним чтением и одной пакетной записью, а не чтением с блокировкой и перезаписью строки на каждую пачку хитов.
+ * <p>
+ * Вместе со скетчами процесс записывает в hit_sketch_watermarks границу hits.id, до которой все его хиты уже
+ * в hit_sketches. Обновления, потерянные при падении, при следующем старте любой реплики добираются из hits
+ * после наименьшей границы: слияние HyperLogLog идемпотентно, и повторно добавленный ip оценку не меняет.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HitSketchService {
+    private static final RollupGranularity[] GRANULARITIES = {RollupGranularity.DAY, RollupGranularity.HOUR};
+
+    private final HitSketchRepository hitSketchRepository;
+    private final HitSketchWatermarkRepository watermarkRepository;
+    private final HitRepository hitRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final UUID instanceId = UUID.randomUUID();
+
+    // ещё не записанные скетчи; flushing — снятые для записи, читаются до её завершения
+    private final Map<SketchKey, PendingSketch> pending = new HashMap<>();
+    private volatile Map<SketchKey, PendingSketch> flushing = Map.of();
+
+    // хиты транзакций, зарегистрированных после чтения seenHitId, получат id больше него;
+    // inFlight - границы ещё не завершённых транзакций. Оба меняются под pending
+    private long seenHitId;
+    private final Set<Floor> inFlight = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    @Value("${stats.unique.sketch.precision:12}")
+    private int precision;
+
+    @Value("${stats.hits.batch-size:1000}")
+    private int batchSize;
+
+    // строка процесса, не обновлявшаяся дольше, считается оставшейся от упавшего или остановленного процесса
+    @Value("${stats.unique.sketch.instance-timeout:PT10M}")
+    private Duration instanceTimeout;
+
+    /**
+     * Пустые скетчи при непустых hits строятся целиком, иначе добираются хиты после наименьшей границы
+     * из hit_sketch_watermarks. Хитов этого процесса ещё нет: граница начинается с последнего выданного id.
+     */
+    @PostConstruct
+    public void recover() {
+        long lastHitId = watermarkRepository.lastHitId();
+        if (hitSketchRepository.count() == 0 && hitRepository.count() > 0) {
+            rebuild(0);
+        } else {
+            watermarkRepository.findMin()
+                    .filter(watermark -> watermark < lastHitId)
+                    .ifPresent(this::rebuild);
+        }
+        seenHitId = lastHitId;
+        watermarkRepository.save(instanceId, lastHitId);
+        int stale = watermarkRepository.deleteStale(instanceId, LocalDateTime.now().minus(instanceTimeout));
+        if (stale > 0) {
+            log.info("Stale sketch watermarks removed: {}", stale);
+        }
+    }
+
+    // как и в RecentHitsAggregator, откат транзакции не должен оставить в скетче ip незаписанного хита;
+    // вызывается до вставки хитов, чтобы граница транзакции была учтена раньше, чем её хиты получат id
+    public void recordAfterCommit(List<Hit> hits) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(hits, register());
+            return;
+        }
+        Floor floor = register();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    record(hits, floor);
+                } else {
+                    synchronized (pending) {
+                        inFlight.remove(floor);
+                    }
+                }
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${stats.unique.sketch.flush-interval:PT5S}")
+    public void flush() {
+        // id читается до снятия pending: транзакции, зарегистрированные после, получат id больше него,
+        // а хиты из pending записываются вместе с границей. Пустой сброс тоже обновляет строку процесса
+        long lastHitId = watermarkRepository.lastHitId();
+        Map<SketchKey, PendingSketch> batch = new TreeMap<>(SketchKey.ORDER);
+        long watermark;
+        synchronized (pending) {
+            batch.putAll(pending);
+            pending.clear();
+            flushing = batch;
+            watermark = lastHitId;
+            for (Floor floor : inFlight) {
+                watermark = Math.min(watermark, floor.hitId());
+            }
+            seenHitId = Math.max(seenHitId, lastHitId);
+        }
+        try {
+            Map<SketchKey, HyperLogLog> sketches = new TreeMap<>(SketchKey.ORDER);
+            batch.forEach((key, unflushed) -> sketches.put(key, unflushed.sketch()));
+            long flushedUpTo = watermark;
+            transactionTemplate.executeWithoutResult(status -> {
+                store(sketches);
+                watermarkRepository.save(instanceId, flushedUpTo);
+            });
+        } catch (RuntimeException e) {
+            log.warn("Sketches not flushed, will retry: keys={}", batch.size(), e);
+            synchronized (pending) {
+                batch.forEach((key, sketch) -> pending.merge(key, sketch, PendingSketch::mergeFrom));
+            }
+        } finally {
+            flushing = Map.of();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    public List<StatsDto> getUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        Map<String, UriSketch> merged = new HashMap<>();
+        for (TimeRange range : TimeRange.plan(start, end.plusSeconds(1), GRANULARITIES)) {
+            if (range.isRaw()) {
+                hitSketchRepository.forEachRawIp(range.from(), range.to(), uris, rs ->
+                        sketchFor(merged, rs.getString("app"), rs.getString("uri")).add(rs.getString("ip")));
+            } else {
+                hitSketchRepository.forEachInRange(range.granularity(), range.from(), range.to(), uris, rs ->
+                        sketchFor(merged, rs.getString("app"), rs.getString("uri"))
+                                .merge(HyperLogLog.fromBytes(rs.getBytes("registers"))));
+                mergeUnflushed(range, uris, merged);
+            }
+        }
+        return merged.values().stream()
+                .map(sketch -> new StatsDto(sketch.app(), sketch.uri(), sketch.sketch().estimate()))
+                .sorted(Comparator.comparing(StatsDto::getHits).reversed())
+                .toList();
+    }
+
+    public double getErrorBound() {
+        return HyperLogLog.errorBound(precision);
+    }
+
+    private Floor register() {
+        synchronized (pending) {
+            Floor floor = new Floor(seenHitId);
+            inFlight.add(floor);
+            return floor;
+        }
+    }
+
+    private void record(List<Hit> hits, Floor floor) {
+        synchronized (pending) {
+            inFlight.remove(floor);
+            for (Hit hit : hits) {
+                for (RollupGranularity granularity : GRANULARITIES) {
+                    SketchKey key = new SketchKey(granularity, granularity.floor(hit.getTimestamp()),
+                            hit.getAppId(), hit.getEndpointId());
+                    pending.computeIfAbsent(key, k -> new PendingSketch(hit.getApp(), hit.getUri(),
+                            new HyperLogLog(precision))).sketch().add(hit.getIp());
+                }
+            }
+        }
+    }
+
+    // слияние HyperLogLog идемпотентно: скетч, уже записанный в базу и ещё лежащий в flushing, не удваивается
+    private void mergeUnflushed(TimeRange range, List<String> uris, Map<String, UriSketch> merged) {
+        Map<SketchKey, PendingSketch> inFlight = flushing;
+        synchronized (pending) {
+            for (Map<SketchKey, PendingSketch> source : List.of(inFlight, pending)) {
+                source.forEach((key, unflushed) -> {
+                    if (key.granularity() == range.granularity()
+                            && !key.bucketStart().isBefore(range.from())
+                            && key.bucketStart().isBefore(range.to())
+                            && (uris == null || uris.isEmpty() || uris.contains(unflushed.uri()))) {
+                        sketchFor(merged, unflushed.app(), unflushed.uri()).merge(unflushed.sketch());
+                    }
+                });
+            }
+        }
+    }
+
+    private HyperLogLog sketchFor(Map<String, UriSketch> merged, String app, String uri) {
+        return merged.computeIfAbsent(app + '\n' + uri, k -> new UriSketch(app, uri, new HyperLogLog(precision))).sketch();
+    }
+
+    private void rebuild(long afterHitId) {
+        for (RollupGranularity granularity : GRANULARITIES) {
+            BucketAccumulator accumulator = new BucketAccumulator(granularity);
+            hitSketchRepository.forEachRawIpByBucket(granularity, afterHitId, rs -> accumulator.add(
+                    rs.getTimestamp("bucket").toLocalDateTime(),
+                    rs.getInt("app_id"),
+                    rs.getInt("endpoint_id"),
+                    rs.getString("ip")));
+            accumulator.finish();
+            log.info("Sketches rebuilt from raw hits: granularity={}, afterHitId={}, buckets={}",
+                    granularity, afterHitId, accumulator.buckets);
+        }
+    }
+
+    private void store(Map<SketchKey, HyperLogLog> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        hitSketchRepository.lockWriters();
+        List<HitSketch> keys = batch.keySet().stream()
+                .map(key -> key.toRow(null))
+                .toList();
+        Map<SketchKey, HyperLogLog> stored = new HashMap<>();
+        for (HitSketch row : hitSketchRepository.findAll(keys)) {
+            stored.put(SketchKey.of(row), HyperLogLog.fromBytes(row.getRegisters()));
+        }
+
+        List<HitSketch> changed = new ArrayList<>();
+        batch.forEach((key, sketch) -> {
+            HyperLogLog current = stored.get(key);
+            if (current == null) {
+                changed.add(key.toRow(sketch.toBytes()));
+            } else if (current.merge(sketch)) {
+                changed.add(key.toRow(current.toBytes()));
+            }
+        });
+        hitSketchRepository.upsertAll(changed);
+    }
+
+    // сравнивается по ссылке: у разных транзакций граница может совпадать
+    private static final class Floor {
+        private final long hitId;
+
+        Floor(long hitId) {
+            this.hitId = hitId;
+        }
+
+        long hitId() {
+            return hitId;
+        }
+    }
+
+    private record PendingSketch(String app, String uri, HyperLogLog sketch) {
+        PendingSketch mergeFrom(PendingSketch other) {
+            sketch.merge(other.sketch());
+            return this;
+        }
+    }
+
+    private record UriSketch(String app, String uri, HyperLogLog sketch) {
+    }
+
+    private record SketchKey(RollupGranularity granularity, LocalDateTime bucketStart, int appId, int endpointId) {
+        private static final Comparator<SketchKey> ORDER = Comparator.comparing(SketchKey::granularity)
+                .thenComparing(SketchKey::bucketStart)
+                .thenComparingInt(SketchKey::appId)
+                .thenComparingInt(SketchKey::endpointId);
+
+        static SketchKey of(HitSketch row) {
+            return new SketchKey(row.getGranularity(), row.getBucketStart(), row.getAppId(), row.getEndpointId());
+        }
+
+        HitSketch toRow(byte[] registers) {
+            return HitSketch.builder()
+                    .granularity(granularity)
+                    .bucketStart(bucketStart)
+                    .appId(appId)
+                    .endpointId(endpointId)
+                    .registers(registers)
+                    .build();
+        }
+    }
+
+    // поток строк отсортирован по бакету и ключу: скетч бакета собирается целиком и уходит в базу пачками
+    private class BucketAccumulator {
+        private final RollupGranularity granularity;
+        private final Map<SketchKey, HyperLogLog> batch = new TreeMap<>(SketchKey.ORDER);
+        private SketchKey current;
+        private HyperLogLog sketch;
+        private int buckets;
+
+        BucketAccumulator(RollupGranularity granularity) {
+            this.granularity = granularity;
+        }
+
+        void add(LocalDateTime bucketStart, int appId, int endpointId, String ip) {
+            SketchKey key = new SketchKey(granularity, bucketStart, appId, endpointId);
+            if (!key.equals(current)) {
+                current = key;
+                sketch = new HyperLogLog(precision);
+                batch.put(key, sketch);
+                buckets++;
+                if (batch.size() > batchSize) {
+                    flushCompleted();
+                }
+            }
+            sketch.add(ip);
+        }
+
+        void finish() {
+            if (!batch.isEmpty()) {
+                Map<SketchKey, HyperLogLog> completed = new TreeMap<>(batch);
+                transactionTemplate.executeWithoutResult(status -> store(completed));
+                batch.clear();
+            }
+        }
+
+        // текущий бакет ещё пополняется, он остаётся до следующей пачки
+        private void flushCompleted() {
+            HyperLogLog open = batch.remove(current);
+            finish();
+            batch.put(current, open);
+        }
+    }
+}
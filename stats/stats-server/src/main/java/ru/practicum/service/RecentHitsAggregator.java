@@ -0,0 +1,377 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.dto.StatsDto;
+import ru.practicum.models.Hit;
+import ru.practicum.models.HitRollup;
+import ru.practicum.models.RollupGranularity;
+import ru.practicum.repository.HitRepository;
+import ru.practicum.repository.HitRollupRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Счётчики хитов за последние {@code stats.memory.horizon} минут в памяти процесса.
+ * Целые минуты окна отвечаются из кольцевых буферов, неполные минуты на краях окна читаются из hits.
+ * Если данные за часть окна могли не попасть в память после рестарта без роллапов, запрос целиком уходит в базу;
+ * вытесненные URI читаются из базы по отдельности.
+ * <p>
+ * Память видит только хиты, принятые этим экземпляром, поэтому режим включается лишь при одном экземпляре stats-server
+ * ({@code stats.memory.enabled}, по умолчанию выключен): при нескольких репликах каждая отдавала бы частичные суммы.
+ */
+@Service
+@Slf4j
+public class RecentHitsAggregator {
+    private static final int STRIPES = 4;
+    // больше стольких вытесненных URI в запросе по всем URI дешевле посчитать всё в базе
+    private static final int MAX_DATABASE_URIS = 100;
+
+    private final HitRepository hitRepository;
+    private final HitRollupRepository hitRollupRepository;
+    private final boolean enabled;
+    private final boolean rollupEnabled;
+    private final int horizonMinutes;
+    private final int skewMinutes;
+    private final int maxUris;
+
+    private final Map<String, UriSeries> series = new ConcurrentHashMap<>();
+    private final ReentrantLock trimLock = new ReentrantLock();
+    // минуты раньше этой могли потерять хиты и из памяти не отвечаются
+    private final AtomicLong completeFromMinute = new AtomicLong(Long.MAX_VALUE);
+    // то же для вытесненных URI: минуты до вытеснения по такому URI отдаёт база
+    private final Map<String, Long> evictedBefore = new ConcurrentHashMap<>();
+
+    private final Counter memoryQueries;
+    private final Counter hybridQueries;
+    private final Counter databaseQueries;
+    private final Counter evictedUris;
+
+    public RecentHitsAggregator(HitRepository hitRepository,
+                                HitRollupRepository hitRollupRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${stats.memory.enabled:false}") boolean enabled,
+                                @Value("${stats.rollup.enabled:true}") boolean rollupEnabled,
+                                @Value("${stats.memory.horizon:60m}") Duration horizon,
+                                @Value("${stats.memory.max-uris:10000}") int maxUris,
+                                @Value("${stats.hits.max-clock-skew:1m}") Duration maxClockSkew) {
+        this.hitRepository = hitRepository;
+        this.hitRollupRepository = hitRollupRepository;
+        this.enabled = enabled;
+        this.rollupEnabled = rollupEnabled;
+        this.horizonMinutes = (int) Math.max(1, horizon.toMinutes());
+        this.maxUris = maxUris;
+        this.skewMinutes = (int) Math.max(1, maxClockSkew.toMinutes());
+
+        Gauge.builder("stats.memory.uris", series, Map::size)
+                .description("URI, для которых хиты за горизонт хранятся в памяти")
+                .register(meterRegistry);
+        this.memoryQueries = queries(meterRegistry, "memory");
+        this.hybridQueries = queries(meterRegistry, "hybrid");
+        this.databaseQueries = queries(meterRegistry, "database");
+        this.evictedUris = Counter.builder("stats.memory.evicted").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        long nowMinute = currentMinute();
+        if (!rollupEnabled) {
+            completeFromMinute.set(nowMinute + 1);
+            return;
+        }
+        long fromMinute = nowMinute - horizonMinutes + 1;
+        List<HitRollup> rollups = hitRollupRepository.findFrom(RollupGranularity.MINUTE, toTime(fromMinute));
+        for (HitRollup rollup : rollups) {
+            add(rollup.getApp(), rollup.getUri(), minuteOf(rollup.getBucketStart()), rollup.getHits(), nowMinute);
+        }
+        completeFromMinute.set(fromMinute);
+        log.info("Recent hits loaded from minute rollups: uris={}, horizonMinutes={}", series.size(), horizonMinutes);
+    }
+
+    // в память попадают только зафиксированные хиты, иначе откат транзакции оставил бы лишние счётчики
+    public void recordAfterCommit(List<Hit> hits) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(hits);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(hits);
+            }
+        });
+    }
+
+    public Optional<List<StatsDto>> getStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        LocalDateTime endExclusive = end.plusSeconds(1);
+        LocalDateTime alignedFrom = RollupGranularity.MINUTE.ceil(start);
+        LocalDateTime alignedTo = RollupGranularity.MINUTE.floor(endExclusive);
+        long nowMinute = currentMinute();
+        long fromMinute = minuteOf(alignedFrom);
+        if (!alignedFrom.isBefore(alignedTo)
+                || fromMinute <= nowMinute - horizonMinutes
+                || fromMinute > nowMinute + skewMinutes
+                || fromMinute < completeFromMinute.get()) {
+            databaseQueries.increment();
+            return Optional.empty();
+        }
+        boolean allUris = uris == null || uris.isEmpty();
+        Set<String> evicted = incompleteUris(allUris ? evictedBefore.keySet() : uris, fromMinute);
+        if (allUris && evicted.size() > MAX_DATABASE_URIS) {
+            databaseQueries.increment();
+            return Optional.empty();
+        }
+        // хиты дальше max-clock-skew в будущее записываются временем приёма, поэтому память кончается на этой минуте,
+        // а остаток окна читается из базы
+        long toMinute = Math.min(minuteOf(alignedTo), nowMinute + skewMinutes + 1);
+
+        Map<String, StatsDto> merged = new HashMap<>();
+        if (allUris) {
+            series.forEach((uri, uriSeries) -> {
+                if (!evicted.contains(uri)) {
+                    uriSeries.sum(uri, fromMinute, toMinute, merged);
+                }
+            });
+        } else {
+            for (String uri : uris) {
+                UriSeries uriSeries = series.get(uri);
+                if (uriSeries != null && !evicted.contains(uri)) {
+                    uriSeries.sum(uri, fromMinute, toMinute, merged);
+                }
+            }
+        }
+
+        boolean edges = false;
+        if (!evicted.isEmpty()) {
+            merge(merged, hitRepository.getStatsInRange(alignedFrom, toTime(toMinute), new ArrayList<>(evicted)));
+            edges = true;
+        }
+        if (toMinute < minuteOf(alignedTo)) {
+            merge(merged, hitRepository.getStatsInRange(toTime(toMinute), alignedTo, uris));
+            edges = true;
+        }
+        if (start.isBefore(alignedFrom)) {
+            merge(merged, hitRepository.getStatsInRange(start, alignedFrom, uris));
+            edges = true;
+        }
+        if (alignedTo.isBefore(endExclusive)) {
+            merge(merged, hitRepository.getStatsInRange(alignedTo, endExclusive, uris));
+            edges = true;
+        }
+        (edges ? hybridQueries : memoryQueries).increment();
+
+        List<StatsDto> result = new ArrayList<>(merged.values());
+        result.sort(Comparator.comparing(StatsDto::getHits).reversed());
+        return Optional.of(result);
+    }
+
+    @Scheduled(fixedDelayString = "${stats.memory.sweep-interval:PT1M}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        trimLock.lock();
+        try {
+            trim(maxUris);
+        } finally {
+            trimLock.unlock();
+        }
+    }
+
+    private void record(List<Hit> hits) {
+        long nowMinute = currentMinute();
+        for (Hit hit : hits) {
+            add(hit.getApp(), hit.getUri(), minuteOf(hit.getTimestamp()), 1, nowMinute);
+        }
+        if (series.size() > maxUris && trimLock.tryLock()) {
+            try {
+                trim(maxUris - maxUris / 10);
+            } finally {
+                trimLock.unlock();
+            }
+        }
+    }
+
+    private void add(String app, String uri, long minute, long count, long nowMinute) {
+        // дальше допуска хиту неоткуда взяться: StatsService записывает такие хиты временем приёма
+        if (minute > nowMinute + skewMinutes || minute <= nowMinute - horizonMinutes) {
+            return;
+        }
+        while (true) {
+            UriSeries uriSeries = series.computeIfAbsent(uri, u -> new UriSeries());
+            uriSeries.add(app, minute, count);
+            // запись в уже вытесненную серию потеряна бы вместе с ней, поэтому повторяем в новой
+            if (!uriSeries.retired) {
+                return;
+            }
+        }
+    }
+
+    private Set<String> incompleteUris(Collection<String> uris, long fromMinute) {
+        Set<String> result = new HashSet<>();
+        for (String uri : uris) {
+            Long before = evictedBefore.get(uri);
+            if (before != null && fromMinute < before) {
+                result.add(uri);
+            }
+        }
+        return result;
+    }
+
+    private void trim(int target) {
+        long expiredBefore = currentMinute() - horizonMinutes;
+        evictedBefore.values().removeIf(minute -> minute <= expiredBefore + 1);
+        series.forEach((uri, uriSeries) -> {
+            if (uriSeries.lastMinute.get() <= expiredBefore) {
+                evict(uri, uriSeries, expiredBefore);
+            }
+        });
+        if (series.size() <= target) {
+            return;
+        }
+        List<Map.Entry<String, UriSeries>> coldest = new ArrayList<>(series.entrySet());
+        coldest.sort(Comparator.comparingLong(entry -> entry.getValue().lastMinute.get()));
+        for (int i = 0; i < coldest.size() - target; i++) {
+            evict(coldest.get(i).getKey(), coldest.get(i).getValue(), expiredBefore);
+        }
+    }
+
+    // отметка ставится до удаления серии, чтобы параллельный запрос не прочитал неполную память.
+    // retired выставляется до чтения lastMinute: add обновляет lastMinute до проверки retired, поэтому хит,
+    // чей add не увидел retired, попадает в lastMinute и его минута уходит в базу, а увидевший - повторяется
+    private void evict(String uri, UriSeries uriSeries, long expiredBefore) {
+        uriSeries.retired = true;
+        long lastMinute = uriSeries.lastMinute.get();
+        if (lastMinute > expiredBefore) {
+            evictedBefore.merge(uri, lastMinute + 1, Math::max);
+            evictedUris.increment();
+        }
+        series.remove(uri, uriSeries);
+    }
+
+    private static void merge(Map<String, StatsDto> merged, List<StatsDto> stats) {
+        for (StatsDto dto : stats) {
+            merged.merge(dto.getApp() + '\n' + dto.getUri(), dto,
+                    (a, b) -> new StatsDto(a.getApp(), a.getUri(), a.getHits() + b.getHits()));
+        }
+    }
+
+    private static Counter queries(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("stats.memory.queries").tag("source", source).register(meterRegistry);
+    }
+
+    private static long currentMinute() {
+        return minuteOf(LocalDateTime.now());
+    }
+
+    private static long minuteOf(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    private static LocalDateTime toTime(long minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+    }
+
+    private class UriSeries {
+        private final Map<String, MinuteRing> apps = new ConcurrentHashMap<>();
+        private final AtomicLong lastMinute = new AtomicLong();
+        private volatile boolean retired;
+
+        void add(String app, long minute, long count) {
+            apps.computeIfAbsent(app, a -> new MinuteRing(horizonMinutes + skewMinutes)).add(minute, count);
+            lastMinute.accumulateAndGet(minute, Math::max);
+        }
+
+        void sum(String uri, long fromMinute, long toMinute, Map<String, StatsDto> merged) {
+            apps.forEach((app, ring) -> {
+                long hits = ring.sum(fromMinute, toMinute);
+                if (hits > 0) {
+                    merge(merged, List.of(new StatsDto(app, uri, hits)));
+                }
+            });
+        }
+    }
+
+    /**
+     * Кольцо поминутных счётчиков. Слот хранит номер минуты в старших 32 битах и счётчик в младших,
+     * поэтому переход слота на новую минуту и инкремент выполняются одним CAS без блокировок.
+     * Каждая минута разбита на {@link #STRIPES} полос, чтобы конкурирующие писатели реже сталкивались.
+     * Счётчик насыщается на {@link #MAX_COUNT}, а не переносится в номер минуты.
+     */
+    private static final class MinuteRing {
+        private static final long MAX_COUNT = 0xFFFFFFFFL;
+
+        private final int minutes;
+        private final AtomicLongArray slots;
+
+        MinuteRing(int minutes) {
+            this.minutes = minutes;
+            this.slots = new AtomicLongArray(minutes * STRIPES);
+        }
+
+        void add(long minute, long count) {
+            int index = (int) (minute % minutes) * STRIPES + (int) (Thread.currentThread().threadId() & (STRIPES - 1));
+            while (true) {
+                long current = slots.get(index);
+                long slotMinute = current >>> 32;
+                long next;
+                if (slotMinute == minute) {
+                    next = current + Math.min(count, MAX_COUNT - (current & MAX_COUNT));
+                } else if (slotMinute < minute) {
+                    next = (minute << 32) | Math.min(count, MAX_COUNT);
+                } else {
+                    return;
+                }
+                if (slots.compareAndSet(index, current, next)) {
+                    return;
+                }
+            }
+        }
+
+        long sum(long fromMinute, long toMinute) {
+            long total = 0;
+            for (long minute = fromMinute; minute < toMinute; minute++) {
+                int base = (int) (minute % minutes) * STRIPES;
+                for (int stripe = 0; stripe < STRIPES; stripe++) {
+                    long slot = slots.get(base + stripe);
+                    if (slot >>> 32 == minute) {
+                        total += slot & MAX_COUNT;
+                    }
+                }
+            }
+            return total;
+        }
+    }
+}
@@ -1,17 +1,33 @@
 package ru.practicum.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dto.HitBatchResultDto;
 import ru.practicum.dto.HitDto;
 import ru.practicum.dto.StatsDto;
+import ru.practicum.metrics.TimedCalls;
 import ru.practicum.models.Hit;
+import ru.practicum.repository.HitBatchRepository;
+import ru.practicum.repository.HitLogCheckpointRepository;
 import ru.practicum.repository.HitRepository;
+import ru.practicum.wal.LogPosition;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 
 @Service
 @RequiredArgsConstructor
@@ -19,36 +35,250 @@ import java.util.List;
 public class StatsService {
 
     private final HitRepository hitRepository;
+    private final HitBatchRepository hitBatchRepository;
+    private final HitRollupService hitRollupService;
+    private final HitSketchService hitSketchService;
+    private final HitDictionaryService hitDictionaryService;
+    private final RecentHitsAggregator recentHitsAggregator;
+    private final HitLogService hitLogService;
+    private final HitLogCheckpointRepository hitLogCheckpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Pattern IPV4 = Pattern.compile("(25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)(\\.(25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]?\\d)){3}");
 
-    @Transactional
+    @Value("${stats.rollup.enabled:true}")
+    private boolean rollupEnabled;
+
+    @Value("${stats.unique.sketch.enabled:true}")
+    private boolean sketchEnabled;
+
+    @Value("${stats.hits.max-clock-skew:1m}")
+    private Duration maxClockSkew;
+
+    // без @Transactional: запись в журнал не должна занимать соединение с базой
     public HitDto addHit(HitDto hitDto) {
-        Hit hit = Hit.builder()
-                .app(hitDto.getApp())
-                .uri(hitDto.getUri())
-                .ip(hitDto.getIp())
-                .timestamp(LocalDateTime.parse(hitDto.getTime(), FORMATTER))
-                .build();
+        return timed("stats.hits.add", Tags.of("mode", "single"), () -> saveHit(hitDto));
+    }
+
+    public HitBatchResultDto addHits(List<HitDto> hitDtos) {
+        return timed("stats.hits.add", Tags.of("mode", "batch"), () -> saveHits(hitDtos));
+    }
 
-        hitRepository.save(hit);
+    private HitDto saveHit(HitDto hitDto) {
+        validateIp(hitDto.getIp());
+        validateTime(hitDto.getTime());
+        if (hitLogService.append(List.of(hitDto))) {
+            log.info("Hit logged: {}", hitDto);
+            return hitDto;
+        }
+
+        List<Hit> hits = toHits(List.of(hitDto));
+        Hit hit = transactionTemplate.execute(status -> save(hits)).get(0);
         log.info("Hit saved: {}", hit);
         return hitDto;
     }
 
+    private HitBatchResultDto saveHits(List<HitDto> hitDtos) {
+        hitDtos.forEach(this::validateHit);
+        if (hitLogService.append(hitDtos)) {
+            log.info("Hits logged in batch: {}", hitDtos.size());
+            return new HitBatchResultDto(hitDtos.size());
+        }
+
+        List<Hit> hits = toHits(hitDtos);
+        int saved = transactionTemplate.execute(status -> save(hits)).size();
+        log.info("Hits saved in batch: {}", saved);
+        return new HitBatchResultDto(saved);
+    }
+
+    // перенос пачки из журнала: хиты и контрольная точка коммитятся вместе
+    public void saveLogged(List<HitDto> hitDtos, LogPosition next) {
+        List<Hit> hits = toHits(hitDtos);
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!hits.isEmpty()) {
+                save(hits);
+            }
+            hitLogCheckpointRepository.save(hitLogService.getInstanceId(), next);
+        });
+    }
+
     @Transactional(readOnly = true)
     public List<StatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+        return getStats(start, end, uris, unique, false);
+    }
+
+    @Transactional(readOnly = true)
+    public List<StatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique, Boolean exact) {
+        String query = isApproximate(unique, exact) ? "approximate" : Boolean.TRUE.equals(unique) ? "unique" : "total";
+        return timed("stats.query", Tags.of("query", query), () -> queryStats(start, end, uris, unique, exact));
+    }
+
+    private List<StatsDto> queryStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique, Boolean exact) {
         validateDateRange(start, end);
 
         List<StatsDto> result;
-        if (Boolean.TRUE.equals(unique)) {
+        if (isApproximate(unique, exact)) {
+            result = hitSketchService.getUniqueStats(start, end, uris);
+        } else if (Boolean.TRUE.equals(unique)) {
             result = hitRepository.getUniqueStats(start, end, uris);
         } else {
-            result = hitRepository.getStats(start, end, uris);
+            result = recentHitsAggregator.getStats(start, end, uris)
+                    .orElseGet(() -> rollupEnabled
+                            ? hitRollupService.getStats(start, end, uris)
+                            : hitRepository.getStats(start, end, uris));
         }
         log.info("getStats result: {}", result);
         return result;
     }
 
+    public boolean isApproximate(Boolean unique, Boolean exact) {
+        return sketchEnabled && Boolean.TRUE.equals(unique) && !Boolean.TRUE.equals(exact);
+    }
+
+    public double getUniqueErrorBound() {
+        return hitSketchService.getErrorBound();
+    }
+
+    // outcome=invalid - запрос отклонён проверкой и в базу не ходил
+    private <T> T timed(String name, Tags tags, Supplier<T> action) {
+        return TimedCalls.record(meterRegistry, Timer.builder(name).tags(tags), action,
+                e -> e instanceof IllegalArgumentException ? "invalid" : TimedCalls.ERROR);
+    }
+
+    private List<Hit> save(List<Hit> hits) {
+        hitSketchService.recordAfterCommit(hits);
+        hitBatchRepository.saveAll(hits);
+        hitRollupService.record(hits);
+        recentHitsAggregator.recordAfterCommit(hits);
+        return hits;
+    }
+
+    // id словарей получаются до транзакции вставки: новое имя пишется в своей транзакции,
+    // и внутри внешней она держала бы второе соединение из пула на каждый поток записи
+    private List<Hit> toHits(List<HitDto> hitDtos) {
+        return hitDtos.stream().map(this::toHit).toList();
+    }
+
+    private Hit toHit(HitDto hitDto) {
+        return Hit.builder()
+                .app(hitDto.getApp())
+                .uri(hitDto.getUri())
+                .ip(canonicalIp(hitDto.getIp()))
+                .timestamp(receivedTime(hitDto.getTime()))
+                .appId(hitDictionaryService.appId(hitDto.getApp()))
+                .endpointId(hitDictionaryService.endpointId(hitDto.getUri()))
+                .build();
+    }
+
+    // часы клиента, ушедшие вперёд больше допуска, не должны записывать хиты в будущие минуты
+    private LocalDateTime receivedTime(String time) {
+        LocalDateTime timestamp = LocalDateTime.parse(time, FORMATTER);
+        LocalDateTime now = LocalDateTime.now();
+        return timestamp.isAfter(now.plus(maxClockSkew)) ? now.withNano(0) : timestamp;
+    }
+
+    private void validateHit(HitDto hitDto) {
+        if (isBlank(hitDto.getApp()) || isBlank(hitDto.getUri()) || isBlank(hitDto.getIp()) || isBlank(hitDto.getTime())) {
+            throw new IllegalArgumentException("Поля app, uri, ip и timestamp обязательны: " + hitDto);
+        }
+        validateIp(hitDto.getIp());
+        validateTime(hitDto.getTime());
+    }
+
+    // хит из журнала переносится в базу позже, поэтому формат времени проверяется до подтверждения
+    private void validateTime(String time) {
+        try {
+            LocalDateTime.parse(time, FORMATTER);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Некорректный timestamp: " + time);
+        }
+    }
+
+    // ip хранится как inet, поэтому принимаются только литералы адресов, без разрешения имён
+    private void validateIp(String ip) {
+        if (ip == null || !(IPV4.matcher(ip).matches() || isIpv6Literal(ip))) {
+            throw new IllegalArgumentException("Некорректный ip-адрес: " + ip);
+        }
+    }
+
+    // текст адреса как у host(inet) в Postgres, иначе один посетитель IPv6 в скетчах и в сырых хитах считается дважды
+    private String canonicalIp(String ip) {
+        if (ip.indexOf(':') < 0) {
+            return ip;
+        }
+        byte[] address;
+        try {
+            address = InetAddress.getByName(ip).getAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Некорректный ip-адрес: " + ip);
+        }
+        if (address.length == 4) {
+            // ::ffff:a.b.c.d Java сворачивает в IPv4, а Postgres хранит как IPv6
+            return "::ffff:" + ipv4(address, 0);
+        }
+        int[] words = new int[8];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = (address[2 * i] & 0xff) << 8 | address[2 * i + 1] & 0xff;
+        }
+        // сжимается самая длинная серия нулей от двух групп, при равенстве - первая
+        int zerosFrom = -1;
+        int zerosLength = 1;
+        for (int i = 0; i < words.length; i++) {
+            int j = i;
+            while (j < words.length && words[j] == 0) {
+                j++;
+            }
+            if (j - i > zerosLength) {
+                zerosFrom = i;
+                zerosLength = j - i;
+            }
+            i = j;
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words.length; i++) {
+            if (zerosFrom >= 0 && i >= zerosFrom && i < zerosFrom + zerosLength) {
+                if (i == zerosFrom) {
+                    text.append(':');
+                }
+                continue;
+            }
+            if (i > 0) {
+                text.append(':');
+            }
+            if (i == 6 && zerosFrom == 0 && zerosLength == 6) {
+                text.append(ipv4(address, 12));
+                return text.toString();
+            }
+            text.append(Integer.toHexString(words[i]));
+        }
+        if (zerosFrom >= 0 && zerosFrom + zerosLength == words.length) {
+            text.append(':');
+        }
+        return text.toString();
+    }
+
+    private static String ipv4(byte[] address, int from) {
+        return (address[from] & 0xff) + "." + (address[from + 1] & 0xff) + "."
+                + (address[from + 2] & 0xff) + "." + (address[from + 3] & 0xff);
+    }
+
+    private boolean isIpv6Literal(String ip) {
+        if (ip.indexOf(':') < 0 || ip.indexOf('%') >= 0) {
+            return false;
+        }
+        try {
+            InetAddress.getByName(ip);
+            return true;
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    private boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
     private void validateDateRange(LocalDateTime start, LocalDateTime end) {
         if (start.isAfter(end)) {
             throw new IllegalArgumentException("Дата начала не может быть позже даты окончания.");
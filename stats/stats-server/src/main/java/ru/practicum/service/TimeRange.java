@@ -0,0 +1,43 @@
+package ru.practicum.service;
+
+import ru.practicum.models.RollupGranularity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+record TimeRange(RollupGranularity granularity, LocalDateTime from, LocalDateTime to) {
+
+    boolean isRaw() {
+        return granularity == null;
+    }
+
+    static List<TimeRange> plan(LocalDateTime from, LocalDateTime to, RollupGranularity... levels) {
+        List<TimeRange> ranges = new ArrayList<>();
+        plan(from, to, levels, 0, ranges);
+        return ranges;
+    }
+
+    private static void plan(LocalDateTime from, LocalDateTime to, RollupGranularity[] levels, int level,
+                             List<TimeRange> ranges) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        if (level == levels.length) {
+            ranges.add(new TimeRange(null, from, to));
+            return;
+        }
+
+        RollupGranularity granularity = levels[level];
+        LocalDateTime alignedFrom = granularity.ceil(from);
+        LocalDateTime alignedTo = granularity.floor(to);
+        if (!alignedFrom.isBefore(alignedTo)) {
+            plan(from, to, levels, level + 1, ranges);
+            return;
+        }
+
+        plan(from, alignedFrom, levels, level + 1, ranges);
+        ranges.add(new TimeRange(granularity, alignedFrom, alignedTo));
+        plan(alignedTo, to, levels, level + 1, ranges);
+    }
+}
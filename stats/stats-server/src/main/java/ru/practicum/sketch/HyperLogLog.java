@@ -0,0 +1,254 @@
+package ru.practicum.sketch;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class HyperLogLog {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // ранг не превышает 64 - 4 + 1 = 61, поэтому первый байт плотного массива всегда меньше 0x80
+    private static final int SPARSE_HEADER = 0x80;
+    private static final int RANK_BITS = 6;
+    private static final int RANK_MASK = (1 << RANK_BITS) - 1;
+    private static final int SPARSE_ENTRY_BYTES = 3;
+
+    private final int precision;
+    // пока заполнено меньше четверти регистров, хранятся только они: index << 6 | rank по возрастанию index
+    private int[] sparse;
+    private int sparseSize;
+    private byte[] registers;
+
+    public HyperLogLog(int precision) {
+        checkPrecision(precision);
+        this.precision = precision;
+        this.sparse = new int[8];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.precision = Integer.numberOfTrailingZeros(registers.length);
+        this.registers = registers;
+    }
+
+    /**
+     * Читает скетч в любом из форматов {@link #toBytes()}: плотный массив регистров длиной 2^precision
+     * или разреженный — байт 0x80 | precision и по три байта index << 6 | rank на каждый ненулевой регистр.
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes.length > 0 && (bytes[0] & SPARSE_HEADER) != 0) {
+            return fromSparseBytes(bytes);
+        }
+        if (Integer.bitCount(bytes.length) != 1) {
+            throw new IllegalStateException("Повреждённый скетч: размер " + bytes.length + " не степень двойки");
+        }
+        return new HyperLogLog(bytes.clone());
+    }
+
+    public static double errorBound(int precision) {
+        return 1.04 / Math.sqrt(1 << precision);
+    }
+
+    public boolean add(String value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (64 - precision));
+        long remaining = hash << precision;
+        int rank = Math.min(Long.numberOfLeadingZeros(remaining) + 1, 64 - precision + 1);
+        return set(index, rank);
+    }
+
+    public boolean merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalStateException("Нельзя объединить скетчи разной точности: "
+                    + precision + " и " + other.precision);
+        }
+        boolean changed = false;
+        if (other.sparse != null) {
+            for (int i = 0; i < other.sparseSize; i++) {
+                changed |= set(other.sparse[i] >>> RANK_BITS, other.sparse[i] & RANK_MASK);
+            }
+            return changed;
+        }
+        toDense();
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    public long estimate() {
+        int m = 1 << precision;
+        double sum = 0;
+        int zeros = 0;
+        if (sparse != null) {
+            zeros = m - sparseSize;
+            sum = zeros;
+            for (int i = 0; i < sparseSize; i++) {
+                sum += 1.0 / (1L << (sparse[i] & RANK_MASK));
+            }
+        } else {
+            for (byte register : registers) {
+                sum += 1.0 / (1L << register);
+                if (register == 0) {
+                    zeros++;
+                }
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public boolean isSparse() {
+        return sparse != null;
+    }
+
+    public byte[] toBytes() {
+        if (sparse == null) {
+            return registers.clone();
+        }
+        byte[] bytes = new byte[1 + sparseSize * SPARSE_ENTRY_BYTES];
+        bytes[0] = (byte) (SPARSE_HEADER | precision);
+        for (int i = 0; i < sparseSize; i++) {
+            int offset = 1 + i * SPARSE_ENTRY_BYTES;
+            bytes[offset] = (byte) (sparse[i] >>> 16);
+            bytes[offset + 1] = (byte) (sparse[i] >>> 8);
+            bytes[offset + 2] = (byte) sparse[i];
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "HyperLogLog{precision=" + precision + ", estimate=" + estimate() + "}";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof HyperLogLog other && Arrays.equals(denseRegisters(), other.denseRegisters());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(denseRegisters());
+    }
+
+    private boolean set(int index, int rank) {
+        if (sparse == null) {
+            if (rank > registers[index]) {
+                registers[index] = (byte) rank;
+                return true;
+            }
+            return false;
+        }
+        int position = findSparse(index);
+        if (position >= 0) {
+            if (rank > (sparse[position] & RANK_MASK)) {
+                sparse[position] = index << RANK_BITS | rank;
+                return true;
+            }
+            return false;
+        }
+        int insertAt = -position - 1;
+        if (sparseSize == sparse.length) {
+            sparse = Arrays.copyOf(sparse, sparseSize * 2);
+        }
+        System.arraycopy(sparse, insertAt, sparse, insertAt + 1, sparseSize - insertAt);
+        sparse[insertAt] = index << RANK_BITS | rank;
+        sparseSize++;
+        if (sparseSize > (1 << precision) / 4) {
+            toDense();
+        }
+        return true;
+    }
+
+    private int findSparse(int index) {
+        int low = 0;
+        int high = sparseSize - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midIndex = sparse[mid] >>> RANK_BITS;
+            if (midIndex < index) {
+                low = mid + 1;
+            } else if (midIndex > index) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void toDense() {
+        if (sparse != null) {
+            registers = denseRegisters();
+            sparse = null;
+            sparseSize = 0;
+        }
+    }
+
+    private byte[] denseRegisters() {
+        if (sparse == null) {
+            return registers;
+        }
+        byte[] dense = new byte[1 << precision];
+        for (int i = 0; i < sparseSize; i++) {
+            dense[sparse[i] >>> RANK_BITS] = (byte) (sparse[i] & RANK_MASK);
+        }
+        return dense;
+    }
+
+    private static HyperLogLog fromSparseBytes(byte[] bytes) {
+        int precision = bytes[0] & ~SPARSE_HEADER & 0xFF;
+        if ((bytes.length - 1) % SPARSE_ENTRY_BYTES != 0) {
+            throw new IllegalStateException("Повреждённый разреженный скетч: размер " + bytes.length);
+        }
+        HyperLogLog sketch = new HyperLogLog(precision);
+        for (int offset = 1; offset < bytes.length; offset += SPARSE_ENTRY_BYTES) {
+            int entry = (bytes[offset] & 0xFF) << 16 | (bytes[offset + 1] & 0xFF) << 8 | bytes[offset + 2] & 0xFF;
+            int index = entry >>> RANK_BITS;
+            if (index >= 1 << precision) {
+                throw new IllegalStateException("Повреждённый разреженный скетч: регистр " + index);
+            }
+            sketch.set(index, entry & RANK_MASK);
+        }
+        return sketch;
+    }
+
+    private static void checkPrecision(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Точность HyperLogLog должна быть в диапазоне 4..18: " + precision);
+        }
+    }
+
+    private static double alpha(int m) {
+        return switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+    }
+
+    private static long hash(String value) {
+        long h = FNV_OFFSET;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= FNV_PRIME;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,10 @@
+package ru.practicum.wal;
+
+public enum FsyncPolicy {
+    // force() после каждой записи: подтверждённый хит переживает падение машины
+    ALWAYS,
+    // force() не реже fsync-interval: при падении машины теряется не больше интервала
+    INTERVAL,
+    // сброс на диск остаётся ядру: переживает падение процесса, но не машины
+    NEVER
+}
@@ -0,0 +1,5 @@
+package ru.practicum.wal;
+
+public record LogPosition(long segment, int offset) {
+    public static final LogPosition START = new LogPosition(0, 0);
+}
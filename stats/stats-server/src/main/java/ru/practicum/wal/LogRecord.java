@@ -0,0 +1,4 @@
+package ru.practicum.wal;
+
+public record LogRecord(byte[] payload, LogPosition next) {
+}
@@ -0,0 +1,174 @@
+package ru.practicum.wal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Файл журнала фиксированного размера, отображённый в память.
+ * Запись: длина (int), CRC32C содержимого (int), содержимое. Нулевая длина означает конец данных:
+ * новый файл заполнен нулями, а оборванная при падении запись отсекается по CRC.
+ * Отображение снимается при удалении сегмента, поэтому в памяти и на диске одновременно
+ * не больше max-segments сегментов.
+ */
+@Slf4j
+final class LogSegment {
+    static final int HEADER = 8;
+
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+    // Unsafe.invokeCleaner из jdk.unsupported; без него отображение живёт до сборки мусора буфера,
+    // а вместе с ним память и место на диске удалённого файла
+    private static final MethodHandle UNMAP = unmapHandle();
+
+    private final long id;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    // limit публикуется после записи байтов, поэтому читатель видит только целые записи
+    private volatile int limit;
+    private volatile boolean sealed;
+    // под монитором сегмента: force из потока sync не должен попасть на снятое отображение
+    private boolean unmapped;
+
+    private LogSegment(long id, Path path, MappedByteBuffer buffer, int limit, boolean sealed) {
+        this.id = id;
+        this.path = path;
+        this.buffer = buffer;
+        this.limit = limit;
+        this.sealed = sealed;
+    }
+
+    static LogSegment create(Path dir, long id, int capacity) throws IOException {
+        Path path = dir.resolve(String.format("%s%020d%s", PREFIX, id, SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new LogSegment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity), 0, false);
+        }
+    }
+
+    // сегменты прошлого запуска только дочитываются, новые хиты пишутся в свежий сегмент
+    static LogSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            return new LogSegment(parseId(path), path, buffer, scan(buffer), true);
+        }
+    }
+
+    static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    boolean tryAppend(byte[] payload) {
+        int at = limit;
+        if (at + HEADER + payload.length > buffer.capacity()) {
+            return false;
+        }
+        buffer.put(at + HEADER, payload);
+        buffer.putInt(at + 4, crc(payload));
+        buffer.putInt(at, payload.length);
+        limit = at + HEADER + payload.length;
+        return true;
+    }
+
+    byte[] read(int offset) {
+        byte[] payload = new byte[buffer.getInt(offset)];
+        buffer.get(offset + HEADER, payload);
+        return payload;
+    }
+
+    synchronized void force() {
+        if (!unmapped) {
+            buffer.force();
+        }
+    }
+
+    void seal() {
+        sealed = true;
+    }
+
+    // вызывается только для дочитанных сегментов: после удаления буфер никто не читает
+    synchronized void delete() throws IOException {
+        Files.deleteIfExists(path);
+        if (!unmapped) {
+            unmapped = true;
+            unmap(buffer);
+        }
+    }
+
+    long id() {
+        return id;
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    private static int scan(MappedByteBuffer buffer) {
+        int offset = 0;
+        while (offset + HEADER <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + HEADER + length > buffer.capacity()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(offset + HEADER, payload);
+            if (crc(payload) != buffer.getInt(offset + 4)) {
+                break;
+            }
+            offset += HEADER + length;
+        }
+        return offset;
+    }
+
+    private static void unmap(MappedByteBuffer buffer) {
+        if (UNMAP == null) {
+            return;
+        }
+        try {
+            UNMAP.invokeExact((ByteBuffer) buffer);
+        } catch (Throwable e) {
+            log.warn("Hit log segment not unmapped: {}", e.toString());
+        }
+    }
+
+    private static MethodHandle unmapHandle() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(theUnsafe.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Hit log segments will be unmapped by the garbage collector: {}", e.toString());
+            return null;
+        }
+    }
+
+    private static long parseId(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,183 @@
+package ru.practicum.wal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Журнал только на дозапись из сегментов в отображённых в память файлах.
+ * Пишут многие потоки под одной блокировкой, читает один фоновый поток без блокировки.
+ */
+public class SegmentLog {
+    private final Path dir;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final FsyncPolicy fsync;
+
+    private final ConcurrentSkipListMap<Long, LogSegment> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private volatile LogSegment active;
+
+    private SegmentLog(Path dir, int segmentSize, int maxSegments, FsyncPolicy fsync) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Открывает журнал: сегменты до {@code checkpoint} удаляются, остальные ждут дочитывания,
+     * а запись продолжается в новый сегмент с номером больше всех известных.
+     */
+    public static SegmentLog open(Path dir, int segmentSize, int maxSegments, FsyncPolicy fsync,
+                                  LogPosition checkpoint) {
+        SegmentLog log = new SegmentLog(dir, segmentSize, maxSegments, fsync);
+        try {
+            Files.createDirectories(dir);
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : files.filter(LogSegment::isSegment).sorted().toList()) {
+                    LogSegment segment = LogSegment.open(file);
+                    if (segment.id() < checkpoint.segment()) {
+                        segment.delete();
+                    } else {
+                        log.segments.put(segment.id(), segment);
+                    }
+                }
+            }
+            long lastId = log.segments.isEmpty() ? 0 : log.segments.lastKey();
+            log.active = LogSegment.create(dir, Math.max(lastId, checkpoint.segment()) + 1, segmentSize);
+            log.segments.put(log.active.id(), log.active);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал хитов в " + dir, e);
+        }
+        return log;
+    }
+
+    public static boolean hasSegments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.anyMatch(LogSegment::isSegment);
+        }
+    }
+
+    /**
+     * Дописывает записи одной пачкой. Возвращает false, если пачка не помещается в журнал без выхода
+     * за max-segments: тогда ничего не записано и все записи надо сохранять мимо журнала.
+     */
+    public boolean append(List<byte[]> records) {
+        appendLock.lock();
+        try {
+            if (segments.size() + rotationsFor(records) > maxSegments) {
+                return false;
+            }
+            for (byte[] record : records) {
+                if (!active.tryAppend(record)) {
+                    rotate();
+                    active.tryAppend(record);
+                }
+            }
+            if (fsync == FsyncPolicy.ALWAYS) {
+                active.force();
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать сегмент журнала хитов", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Читает до {@code max} записей начиная с {@code from}. У каждой записи есть позиция сразу за ней,
+     * её и надо сохранять как контрольную точку после переноса записи в базу.
+     */
+    public List<LogRecord> read(LogPosition from, int max) {
+        List<LogRecord> records = new ArrayList<>();
+        for (LogSegment segment : segments.tailMap(from.segment(), true).values()) {
+            // флаг читается до limit: у закрытого сегмента limit уже окончательный
+            boolean sealed = segment.isSealed();
+            int limit = segment.limit();
+            int offset = segment.id() == from.segment() ? from.offset() : 0;
+            while (offset < limit && records.size() < max) {
+                byte[] payload = segment.read(offset);
+                offset += LogSegment.HEADER + payload.length;
+                records.add(new LogRecord(payload, new LogPosition(segment.id(), offset)));
+            }
+            if (records.size() >= max || !sealed) {
+                break;
+            }
+        }
+        return records;
+    }
+
+    // удаляет закрытые сегменты, полностью перенесённые в базу к позиции upTo
+    public void release(LogPosition upTo) {
+        for (Map.Entry<Long, LogSegment> entry : segments.headMap(upTo.segment(), true).entrySet()) {
+            LogSegment segment = entry.getValue();
+            boolean drained = segment.id() < upTo.segment() || upTo.offset() >= segment.limit();
+            if (!segment.isSealed() || !drained) {
+                continue;
+            }
+            segments.remove(entry.getKey());
+            try {
+                segment.delete();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось удалить сегмент журнала хитов " + segment.id(), e);
+            }
+        }
+    }
+
+    public void sync() {
+        if (fsync != FsyncPolicy.NEVER) {
+            active.force();
+        }
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    // байты, ещё не перенесённые в базу начиная с позиции from
+    public long pendingBytes(LogPosition from) {
+        long pending = 0;
+        for (LogSegment segment : segments.tailMap(from.segment(), true).values()) {
+            pending += segment.limit() - (segment.id() == from.segment() ? from.offset() : 0);
+        }
+        return Math.max(0, pending);
+    }
+
+    // сколько новых сегментов понадобится пачке: раскладка повторяет tryAppend, но ничего не пишет
+    private int rotationsFor(List<byte[]> records) {
+        int rotations = 0;
+        int position = active.limit();
+        for (byte[] record : records) {
+            int size = LogSegment.HEADER + record.length;
+            if (size > segmentSize) {
+                throw new IllegalArgumentException("Запись размером " + record.length
+                        + " байт не помещается в сегмент журнала");
+            }
+            if (position + size > segmentSize) {
+                rotations++;
+                position = 0;
+            }
+            position += size;
+        }
+        return rotations;
+    }
+
+    private void rotate() throws IOException {
+        LogSegment sealed = active;
+        if (fsync != FsyncPolicy.NEVER) {
+            sealed.force();
+        }
+        active = LogSegment.create(dir, sealed.id() + 1, segmentSize);
+        segments.put(active.id(), active);
+        sealed.seal();
+    }
+}
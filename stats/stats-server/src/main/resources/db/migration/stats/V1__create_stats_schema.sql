@@ -0,0 +1,67 @@
+-- Схема сервиса статистики. До перехода на миграции таблицы создавал Hibernate (ddl-auto=update),
+-- поэтому все операторы идемпотентны и миграция накатывается поверх существующей базы.
+
+-- обычная таблица hits от прежних версий переносится в секционированную с сохранением id
+DO $$
+BEGIN
+    IF (SELECT relkind FROM pg_class WHERE oid = to_regclass('hits')) = 'r' THEN
+        ALTER TABLE hits RENAME TO hits_legacy;
+        ALTER TABLE hits_legacy ALTER COLUMN id DROP IDENTITY IF EXISTS;
+    END IF;
+END
+$$;
+
+CREATE SEQUENCE IF NOT EXISTS hits_id_seq;
+
+CREATE TABLE IF NOT EXISTS hits (
+    id BIGINT NOT NULL DEFAULT nextval('hits_id_seq'),
+    app VARCHAR(256) NOT NULL,
+    uri VARCHAR(512) NOT NULL,
+    ip VARCHAR(45) NOT NULL,
+    timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_hits PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+ALTER SEQUENCE hits_id_seq OWNED BY hits.id;
+
+CREATE TABLE IF NOT EXISTS hits_default PARTITION OF hits DEFAULT;
+
+-- помесячные секции под старые данные; дальнейшими секциями управляет HitPartitionService
+DO $$
+DECLARE
+    month_start TIMESTAMP;
+BEGIN
+    IF to_regclass('hits_legacy') IS NULL THEN
+        RETURN;
+    END IF;
+    FOR month_start IN SELECT DISTINCT date_trunc('month', timestamp) FROM hits_legacy LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF hits FOR VALUES FROM (%L) TO (%L)',
+                       'hits_p' || to_char(month_start, 'YYYYMM'), month_start, month_start + INTERVAL '1 month');
+    END LOOP;
+    INSERT INTO hits (id, app, uri, ip, timestamp) SELECT id, app, uri, ip, timestamp FROM hits_legacy;
+    PERFORM setval('hits_id_seq', COALESCE((SELECT MAX(id) FROM hits), 0) + 1, false);
+    DROP TABLE hits_legacy;
+END
+$$;
+
+CREATE TABLE IF NOT EXISTS hit_rollups (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    granularity VARCHAR(10) NOT NULL,
+    bucket_start TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app VARCHAR(256) NOT NULL,
+    uri VARCHAR(512) NOT NULL,
+    hits BIGINT NOT NULL,
+    CONSTRAINT hit_rollups_pkey PRIMARY KEY (id),
+    CONSTRAINT uq_hit_rollups_bucket UNIQUE (granularity, bucket_start, app, uri)
+);
+
+CREATE TABLE IF NOT EXISTS hit_sketches (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    granularity VARCHAR(10) NOT NULL,
+    bucket_start TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app VARCHAR(256) NOT NULL,
+    uri VARCHAR(512) NOT NULL,
+    registers BYTEA NOT NULL,
+    CONSTRAINT hit_sketches_pkey PRIMARY KEY (id),
+    CONSTRAINT uq_hit_sketches_bucket UNIQUE (granularity, bucket_start, app, uri)
+);
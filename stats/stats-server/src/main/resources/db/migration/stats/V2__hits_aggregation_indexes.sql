@@ -0,0 +1,10 @@
+-- getStats/getUniqueStats по списку uri: index-only scan без обращения к куче
+CREATE INDEX IF NOT EXISTS idx_hits_uri_timestamp ON hits (uri, timestamp) INCLUDE (ip, app);
+
+-- хиты пишутся почти в порядке времени, поэтому BRIN по timestamp на порядки компактнее btree;
+-- без autosummarize свежие диапазоны страниц не суммаризованы до VACUUM и читаются целиком
+DROP INDEX IF EXISTS idx_hits_timestamp;
+CREATE INDEX IF NOT EXISTS brin_hits_timestamp ON hits USING brin (timestamp) WITH (autosummarize = on);
+
+-- сумма по роллапам для списка uri
+CREATE INDEX IF NOT EXISTS idx_hit_rollups_uri ON hit_rollups (granularity, uri, bucket_start) INCLUDE (app, hits);
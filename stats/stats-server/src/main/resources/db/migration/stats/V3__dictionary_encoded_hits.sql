@@ -0,0 +1,100 @@
+-- Словари приложений и эндпоинтов: строка hits хранит два целых id и inet вместо трёх varchar.
+
+CREATE TABLE IF NOT EXISTS apps (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    name VARCHAR(256) NOT NULL,
+    CONSTRAINT pk_apps PRIMARY KEY (id),
+    CONSTRAINT uq_apps_name UNIQUE (name)
+);
+
+CREATE TABLE IF NOT EXISTS endpoints (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    uri VARCHAR(512) NOT NULL,
+    CONSTRAINT pk_endpoints PRIMARY KEY (id),
+    CONSTRAINT uq_endpoints_uri UNIQUE (uri)
+);
+
+INSERT INTO apps (name) SELECT DISTINCT app FROM hits ON CONFLICT DO NOTHING;
+INSERT INTO endpoints (uri) SELECT DISTINCT uri FROM hits ON CONFLICT DO NOTHING;
+
+-- нераспознаваемый ip не подменяется адресом: такие строки целиком переносятся в hits_invalid_ip
+CREATE FUNCTION pg_temp.to_inet(value TEXT) RETURNS INET AS $$
+BEGIN
+    RETURN value::inet;
+EXCEPTION WHEN others THEN
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+-- прежняя таблица вместе с секциями уходит в сторону, новая создаётся с теми же границами секций
+DROP INDEX IF EXISTS idx_hits_uri_timestamp;
+DROP INDEX IF EXISTS brin_hits_timestamp;
+ALTER TABLE hits DROP CONSTRAINT pk_hits;
+ALTER SEQUENCE hits_id_seq OWNED BY NONE;
+ALTER TABLE hits RENAME TO hits_text;
+
+DO $$
+DECLARE
+    part RECORD;
+BEGIN
+    FOR part IN SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'hits_text'::regclass LOOP
+        EXECUTE format('ALTER TABLE %I RENAME TO %I', part.relname, part.relname || '_text');
+    END LOOP;
+END
+$$;
+
+CREATE TABLE hits (
+    id BIGINT NOT NULL DEFAULT nextval('hits_id_seq'),
+    app_id INTEGER NOT NULL,
+    endpoint_id INTEGER NOT NULL,
+    ip INET NOT NULL,
+    timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_hits PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+ALTER SEQUENCE hits_id_seq OWNED BY hits.id;
+
+DO $$
+DECLARE
+    part RECORD;
+BEGIN
+    FOR part IN SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) AS bound FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = 'hits_text'::regclass LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF hits %s',
+                       left(part.relname, length(part.relname) - length('_text')), part.bound);
+    END LOOP;
+END
+$$;
+
+CREATE TABLE IF NOT EXISTS hits_default PARTITION OF hits DEFAULT;
+
+CREATE TABLE hits_invalid_ip AS
+SELECT h.id, h.app, h.uri, h.ip, h.timestamp
+FROM hits_text h
+WHERE pg_temp.to_inet(h.ip) IS NULL;
+
+DO $$
+DECLARE
+    invalid BIGINT;
+BEGIN
+    SELECT COUNT(*) INTO invalid FROM hits_invalid_ip;
+    IF invalid > 0 THEN
+        RAISE WARNING 'Хиты с нераспознаваемым ip не перенесены в hits и сохранены в hits_invalid_ip: %', invalid;
+    END IF;
+END
+$$;
+
+INSERT INTO hits (id, app_id, endpoint_id, ip, timestamp)
+SELECT h.id, a.id, e.id, v.ip, h.timestamp
+FROM hits_text h
+CROSS JOIN LATERAL (SELECT pg_temp.to_inet(h.ip) AS ip) v
+JOIN apps a ON a.name = h.app
+JOIN endpoints e ON e.uri = h.uri
+WHERE v.ip IS NOT NULL;
+
+DROP TABLE hits_text;
+
+-- индексы строятся после переноса данных, а не поддерживаются построчно
+CREATE INDEX idx_hits_endpoint_timestamp ON hits (endpoint_id, timestamp) INCLUDE (app_id, ip);
+CREATE INDEX brin_hits_timestamp ON hits USING brin (timestamp) WITH (autosummarize = on);
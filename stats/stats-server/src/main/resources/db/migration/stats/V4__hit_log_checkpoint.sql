@@ -0,0 +1,7 @@
+-- позиция в журнале хитов, до которой записи перенесены в hits; обновляется в той же транзакции, что и вставка
+CREATE TABLE IF NOT EXISTS hit_log_checkpoint (
+    id         SMALLINT PRIMARY KEY CHECK (id = 1),
+    segment    BIGINT    NOT NULL,
+    position   INTEGER   NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT now()
+);
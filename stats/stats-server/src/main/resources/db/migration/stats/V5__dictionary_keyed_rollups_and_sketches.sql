@@ -0,0 +1,39 @@
+-- Роллапы и скетчи переходят на ключи словарей apps и endpoints, как и hits:
+-- уникальный ключ и индексы строятся по двум целым вместо двух varchar.
+
+INSERT INTO apps (name) SELECT DISTINCT app FROM hit_rollups ON CONFLICT DO NOTHING;
+INSERT INTO apps (name) SELECT DISTINCT app FROM hit_sketches ON CONFLICT DO NOTHING;
+INSERT INTO endpoints (uri) SELECT DISTINCT uri FROM hit_rollups ON CONFLICT DO NOTHING;
+INSERT INTO endpoints (uri) SELECT DISTINCT uri FROM hit_sketches ON CONFLICT DO NOTHING;
+
+ALTER TABLE hit_rollups ADD COLUMN app_id INTEGER, ADD COLUMN endpoint_id INTEGER;
+UPDATE hit_rollups r SET app_id = a.id, endpoint_id = e.id
+FROM apps a, endpoints e
+WHERE a.name = r.app AND e.uri = r.uri;
+
+DROP INDEX IF EXISTS idx_hit_rollups_uri;
+ALTER TABLE hit_rollups DROP CONSTRAINT uq_hit_rollups_bucket;
+ALTER TABLE hit_rollups
+    ALTER COLUMN app_id SET NOT NULL,
+    ALTER COLUMN endpoint_id SET NOT NULL,
+    DROP COLUMN app,
+    DROP COLUMN uri;
+ALTER TABLE hit_rollups
+    ADD CONSTRAINT uq_hit_rollups_bucket UNIQUE (granularity, bucket_start, app_id, endpoint_id);
+
+-- сумма по роллапам для списка uri
+CREATE INDEX idx_hit_rollups_endpoint ON hit_rollups (granularity, endpoint_id, bucket_start) INCLUDE (app_id, hits);
+
+ALTER TABLE hit_sketches ADD COLUMN app_id INTEGER, ADD COLUMN endpoint_id INTEGER;
+UPDATE hit_sketches s SET app_id = a.id, endpoint_id = e.id
+FROM apps a, endpoints e
+WHERE a.name = s.app AND e.uri = s.uri;
+
+ALTER TABLE hit_sketches DROP CONSTRAINT uq_hit_sketches_bucket;
+ALTER TABLE hit_sketches
+    ALTER COLUMN app_id SET NOT NULL,
+    ALTER COLUMN endpoint_id SET NOT NULL,
+    DROP COLUMN app,
+    DROP COLUMN uri;
+ALTER TABLE hit_sketches
+    ADD CONSTRAINT uq_hit_sketches_bucket UNIQUE (granularity, bucket_start, app_id, endpoint_id);
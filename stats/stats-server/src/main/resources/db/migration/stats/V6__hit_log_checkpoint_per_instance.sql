@@ -0,0 +1,9 @@
+-- Номера сегментов журнала хитов локальны для каталога журнала, поэтому контрольная точка хранится
+-- по идентификатору журнала (UUID из файла instance-id в каталоге): реплики не затирают позиции друг друга.
+-- Строка, записанная до миграции, остаётся с пустым instance_id, её забирает журнал, открытый первым.
+
+ALTER TABLE hit_log_checkpoint ADD COLUMN instance_id UUID;
+ALTER TABLE hit_log_checkpoint DROP CONSTRAINT hit_log_checkpoint_pkey;
+ALTER TABLE hit_log_checkpoint DROP COLUMN id;
+
+CREATE UNIQUE INDEX uq_hit_log_checkpoint_instance ON hit_log_checkpoint (instance_id);
@@ -0,0 +1,8 @@
+-- Граница hits.id, до которой хиты уже слиты в hit_sketches: строка на каждый запущенный процесс,
+-- потому что несохранённые скетчи у каждой реплики свои. При старте скетчи добираются из hits после
+-- наименьшей границы, строки давно не обновлявшихся процессов после этого удаляются.
+CREATE TABLE IF NOT EXISTS hit_sketch_watermarks (
+    instance_id UUID      PRIMARY KEY,
+    last_hit_id BIGINT    NOT NULL,
+    updated_at  TIMESTAMP NOT NULL DEFAULT now()
+);
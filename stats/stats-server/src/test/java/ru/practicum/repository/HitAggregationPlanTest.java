@@ -0,0 +1,97 @@
+package ru.practicum.repository;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.StatsServerApp;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Планы агрегатов getStats и getUniqueStats на синтетическом объёме: узкое окно по времени
+ * читается через индексы секций hits, а не последовательным проходом.
+ */
+@SpringBootTest(classes = StatsServerApp.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class HitAggregationPlanTest {
+    private static final int HITS = 300_000;
+    private static final int ENDPOINTS = 1_000;
+    private static final int DAYS = 14;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void seedHits() {
+        jdbcTemplate.execute("TRUNCATE hits");
+        jdbcTemplate.update("INSERT INTO apps (name) VALUES ('ewm-main-service') ON CONFLICT DO NOTHING");
+        jdbcTemplate.update("INSERT INTO endpoints (uri) SELECT '/events/' || i FROM generate_series(1, ?) AS i "
+                + "ON CONFLICT DO NOTHING", ENDPOINTS);
+        // равномерно по DAYS суткам в порядке времени, как при живой записи (на этом держится BRIN), ip из пула в 50 тысяч адресов
+        jdbcTemplate.update("INSERT INTO hits (app_id, endpoint_id, ip, timestamp) "
+                        + "SELECT (SELECT id FROM apps WHERE name = 'ewm-main-service'), "
+                        + "(SELECT id FROM endpoints WHERE uri = '/events/' || (1 + i % ?)), "
+                        + "'10.0.0.0'::inet + (i::bigint * 7919) % 50000, "
+                        + "date_trunc('minute', now()::timestamp) - (i % (? * 1440)) * interval '1 minute' "
+                        + "FROM generate_series(1, ?) AS i ORDER BY 4",
+                ENDPOINTS, DAYS, HITS);
+        jdbcTemplate.execute("ANALYZE hits");
+        jdbcTemplate.execute("ANALYZE endpoints");
+    }
+
+    @AfterAll
+    void cleanUp() {
+        jdbcTemplate.execute("TRUNCATE hits");
+    }
+
+    @Test
+    void statsForUrisUseEndpointIndex() {
+        String plan = explain("COUNT(*)", List.of("/events/1", "/events/2", "/events/3"));
+
+        // индексы секций наследуют имя по колонкам: hits_p<период>_endpoint_id_timestamp_app_id_ip_idx
+        assertThat(plan).contains("Index Only Scan using").contains("endpoint_id_timestamp_app_id_ip_idx");
+        assertThat(plan).doesNotContain("Seq Scan on hits");
+    }
+
+    @Test
+    void uniqueStatsForUrisUseEndpointIndex() {
+        String plan = explain("COUNT(DISTINCT ip)", List.of("/events/1", "/events/2", "/events/3"));
+
+        // индексы секций наследуют имя по колонкам: hits_p<период>_endpoint_id_timestamp_app_id_ip_idx
+        assertThat(plan).contains("Index Only Scan using").contains("endpoint_id_timestamp_app_id_ip_idx");
+        assertThat(plan).doesNotContain("Seq Scan on hits");
+    }
+
+    @Test
+    void statsForAllUrisUseBrinIndex() {
+        String plan = explain("COUNT(*)", List.of());
+
+        assertThat(plan).contains("Bitmap Index Scan on").contains("timestamp_idx");
+        assertThat(plan).doesNotContain("Seq Scan on hits");
+    }
+
+    // запрос собирается так же, как в HitRepository.aggregate, окно - последний час
+    private String explain(String hits, List<String> uris) {
+        LocalDateTime end = LocalDateTime.now();
+        List<Object> args = new ArrayList<>(List.of(Timestamp.valueOf(end.minusHours(1)), Timestamp.valueOf(end)));
+        String uriFilter = "";
+        if (!uris.isEmpty()) {
+            uriFilter = " AND endpoint_id IN (SELECT id FROM endpoints WHERE uri IN ("
+                    + uris.stream().map(uri -> "?").collect(Collectors.joining(", ")) + "))";
+            args.addAll(uris);
+        }
+        String sql = String.format(HitRepository.AGGREGATE, hits, "<=", uriFilter) + HitRepository.ORDER_BY_HITS;
+        return jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args.toArray()).stream()
+                .collect(Collectors.joining("\n"));
+    }
+}
@@ -0,0 +1,96 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.StatsServerApp;
+import ru.practicum.dto.HitDto;
+import ru.practicum.dto.StatsDto;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Скетчи пишутся в базу при сбросе, а не на каждую пачку хитов; до сброса оценка учитывает их из памяти,
+ * повторный сброс того же бакета сливается с уже записанной строкой. Хиты, чьи скетчи не успел записать упавший
+ * процесс, добираются при старте из hits после его границы.
+ */
+@SpringBootTest(classes = StatsServerApp.class)
+class HitSketchServiceTest {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private StatsService statsService;
+    @Autowired
+    private HitSketchService hitSketchService;
+    @Autowired
+    private HitDictionaryService hitDictionaryService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void sketchesAreMergedInMemoryAndFlushedSparse() {
+        String uri = "/events/sketch-" + System.nanoTime();
+        LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(3);
+        LocalDateTime end = hour.plusHours(1).minusSeconds(1);
+
+        statsService.addHits(List.of(hit(uri, "10.0.0.1", hour), hit(uri, "10.0.0.2", hour.plusMinutes(5))));
+        assertThat(uniqueHits(uri, hour, end)).isEqualTo(2);
+
+        hitSketchService.flush();
+        assertThat(storedRegisters(uri)).allSatisfy(registers ->
+                assertThat(registers.length).isLessThan(16));
+        assertThat(uniqueHits(uri, hour, end)).isEqualTo(2);
+
+        statsService.addHits(List.of(hit(uri, "10.0.0.2", hour.plusMinutes(10)), hit(uri, "10.0.0.3", hour)));
+        hitSketchService.flush();
+        assertThat(storedRegisters(uri)).hasSize(2);
+        assertThat(uniqueHits(uri, hour, end)).isEqualTo(3);
+    }
+
+    @Test
+    void hitsAfterCrashedInstanceWatermarkAreRecoveredOnStartup() {
+        String uri = "/events/sketch-crash-" + System.nanoTime();
+        LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(3);
+        LocalDateTime end = hour.plusHours(1).minusSeconds(1);
+        hitSketchService.flush();
+
+        // упавший процесс успел записать хиты, но не их скетчи
+        Long lastHitId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM hits", Long.class);
+        jdbcTemplate.update("INSERT INTO hit_sketch_watermarks (instance_id, last_hit_id) VALUES (?, ?)",
+                UUID.randomUUID(), lastHitId);
+        int appId = hitDictionaryService.appId("ewm-main-service");
+        int endpointId = hitDictionaryService.endpointId(uri);
+        for (String ip : List.of("10.0.1.1", "10.0.1.2", "10.0.1.1")) {
+            jdbcTemplate.update("INSERT INTO hits (app_id, endpoint_id, ip, timestamp) VALUES (?, ?, ?::inet, ?)",
+                    appId, endpointId, ip, Timestamp.valueOf(hour.plusMinutes(1)));
+        }
+        assertThat(uniqueHits(uri, hour, end)).isZero();
+
+        hitSketchService.recover();
+        assertThat(storedRegisters(uri)).hasSize(2);
+        assertThat(uniqueHits(uri, hour, end)).isEqualTo(2);
+    }
+
+    private long uniqueHits(String uri, LocalDateTime start, LocalDateTime end) {
+        return hitSketchService.getUniqueStats(start, end, List.of(uri)).stream()
+                .mapToLong(StatsDto::getHits)
+                .sum();
+    }
+
+    private List<byte[]> storedRegisters(String uri) {
+        return jdbcTemplate.queryForList("SELECT s.registers FROM hit_sketches s " +
+                "JOIN endpoints e ON e.id = s.endpoint_id WHERE e.uri = ?", byte[].class, uri);
+    }
+
+    private static HitDto hit(String uri, String ip, LocalDateTime time) {
+        return new HitDto("ewm-main-service", uri, ip, time.format(FORMATTER));
+    }
+}
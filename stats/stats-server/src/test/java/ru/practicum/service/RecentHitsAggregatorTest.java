@@ -0,0 +1,60 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.StatsServerApp;
+import ru.practicum.dto.HitDto;
+import ru.practicum.dto.StatsDto;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Хит с часами далеко впереди записывается временем приёма и не уводит окна последнего часа из памяти в базу.
+ */
+@SpringBootTest(classes = StatsServerApp.class, properties = "stats.memory.enabled=true")
+class RecentHitsAggregatorTest {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private StatsService statsService;
+    @Autowired
+    private RecentHitsAggregator recentHitsAggregator;
+
+    @Test
+    void farFutureHitIsClampedAndRecentWindowsStayInMemory() {
+        String futureUri = "/events/future-" + System.nanoTime();
+        String recentUri = "/events/recent-" + System.nanoTime();
+        LocalDateTime sent = LocalDateTime.now();
+
+        statsService.addHit(hit(futureUri, sent.plusYears(1)));
+        statsService.addHit(hit(recentUri, sent));
+
+        LocalDateTime now = LocalDateTime.now();
+        Optional<List<StatsDto>> recent = recentHitsAggregator.getStats(now.minusMinutes(10), now,
+                List.of(futureUri, recentUri));
+        assertThat(recent).isPresent();
+        assertThat(recent.get()).extracting(StatsDto::getUri, StatsDto::getHits)
+                .containsExactlyInAnyOrder(
+                        tuple(futureUri, 1L),
+                        tuple(recentUri, 1L));
+
+        // другие URI тоже по-прежнему отвечаются из памяти
+        assertThat(recentHitsAggregator.getStats(now.minusMinutes(30), now, List.of("/events/other"))).isPresent();
+
+        // в будущей минуте хита нет ни в памяти, ни в базе
+        List<StatsDto> future = statsService.getStats(sent.plusYears(1).minusDays(1), sent.plusYears(1).plusDays(1),
+                List.of(futureUri), false);
+        assertThat(future).isEmpty();
+    }
+
+    private static HitDto hit(String uri, LocalDateTime time) {
+        return new HitDto("ewm-main-service", uri, "10.1.2.3", time.format(FORMATTER));
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.StatsServerApp;
+import ru.practicum.dto.HitDto;
+import ru.practicum.dto.StatsDto;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Вытеснение серий идёт параллельно с записью хитов в те же URI: ни один зафиксированный хит не теряется,
+ * часть окна после вытеснения отвечает база.
+ */
+@SpringBootTest(classes = StatsServerApp.class, properties = {"stats.memory.enabled=true", "stats.memory.max-uris=4"})
+class RecentHitsEvictionConcurrencyTest {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int THREADS = 8;
+    private static final int URIS = 20;
+    private static final int ROUNDS = 50;
+
+    @Autowired
+    private StatsService statsService;
+    @Autowired
+    private RecentHitsAggregator recentHitsAggregator;
+
+    @Test
+    void hitsRacingWithEvictionAreCountedOnce() throws Exception {
+        String prefix = "/events/evict-" + System.nanoTime() + "-";
+        LocalDateTime start = LocalDateTime.now().minusMinutes(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                writers.add(executor.submit(() -> {
+                    for (int round = 0; round < ROUNDS; round++) {
+                        List<HitDto> hits = new ArrayList<>();
+                        for (int i = 0; i < URIS; i++) {
+                            hits.add(new HitDto("ewm-main-service", prefix + i, "10.1.2.3",
+                                    LocalDateTime.now().format(FORMATTER)));
+                        }
+                        statsService.addHits(hits);
+                    }
+                }));
+            }
+            Future<?> sweeper = executor.submit(() -> {
+                while (writing.get()) {
+                    recentHitsAggregator.sweep();
+                }
+            });
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            writing.set(false);
+            sweeper.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<String> uris = new ArrayList<>();
+        for (int i = 0; i < URIS; i++) {
+            uris.add(prefix + i);
+        }
+        List<StatsDto> stats = statsService.getStats(start, LocalDateTime.now().plusSeconds(1), uris, false);
+        assertThat(stats).hasSize(URIS);
+        assertThat(stats).allSatisfy(dto -> assertThat(dto.getHits()).isEqualTo((long) THREADS * ROUNDS));
+    }
+}
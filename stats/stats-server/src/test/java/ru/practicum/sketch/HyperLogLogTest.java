@@ -0,0 +1,60 @@
+package ru.practicum.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Разреженный скетч малой мощности занимает байты по числу заполненных регистров и даёт ту же оценку,
+ * что и плотный; при росте мощности скетч переходит в плотный формат, старые плотные строки читаются как раньше.
+ */
+class HyperLogLogTest {
+    private static final int PRECISION = 12;
+
+    @Test
+    void smallSketchIsStoredSparse() {
+        HyperLogLog sketch = sketchOf(0, 100);
+
+        byte[] bytes = sketch.toBytes();
+        assertThat(sketch.isSparse()).isTrue();
+        assertThat(bytes.length).isLessThan(400);
+
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+        assertThat(restored).isEqualTo(sketch);
+        assertThat(restored.estimate()).isEqualTo(sketch.estimate());
+        assertThat(sketch.estimate()).isBetween(95L, 105L);
+    }
+
+    @Test
+    void largeSketchSwitchesToDense() {
+        HyperLogLog sketch = sketchOf(0, 10_000);
+
+        assertThat(sketch.isSparse()).isFalse();
+        assertThat(sketch.toBytes()).hasSize(1 << PRECISION);
+        assertThat(HyperLogLog.fromBytes(sketch.toBytes())).isEqualTo(sketch);
+    }
+
+    @Test
+    void sparseAndDenseMergeToSameRegisters() {
+        HyperLogLog dense = sketchOf(0, 10_000);
+        HyperLogLog sparse = sketchOf(20_000, 20_050);
+
+        HyperLogLog denseFirst = HyperLogLog.fromBytes(dense.toBytes());
+        denseFirst.merge(sparse);
+        HyperLogLog sparseFirst = HyperLogLog.fromBytes(sparse.toBytes());
+        sparseFirst.merge(dense);
+
+        assertThat(sparseFirst).isEqualTo(denseFirst);
+        HyperLogLog union = sketchOf(0, 10_000);
+        union.merge(sketchOf(20_000, 20_050));
+        assertThat(sparseFirst.estimate()).isEqualTo(union.estimate());
+    }
+
+    private static HyperLogLog sketchOf(int from, int to) {
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+        for (int i = from; i < to; i++) {
+            sketch.add("10." + (i >> 16) + "." + (i >> 8 & 0xFF) + "." + (i & 0xFF));
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,64 @@
+package ru.practicum.wal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Журнал не выходит за max-segments даже внутри одной пачки: не помещающаяся пачка целиком уходит мимо журнала.
+ */
+class SegmentLogTest {
+    // заголовок 8 байт + 16 байт содержимого: в 64-байтовый сегмент помещаются две записи
+    private static final int SEGMENT_SIZE = 64;
+    private static final byte[] RECORD = new byte[16];
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void batchCrossingMaxSegmentsIsRejectedWithoutWriting() {
+        SegmentLog log = SegmentLog.open(dir, SEGMENT_SIZE, 2, FsyncPolicy.NEVER, LogPosition.START);
+
+        assertThat(log.append(records(6))).isFalse();
+        assertThat(log.segmentCount()).isEqualTo(1);
+        assertThat(log.read(LogPosition.START, 100)).isEmpty();
+
+        assertThat(log.append(records(4))).isTrue();
+        assertThat(log.segmentCount()).isEqualTo(2);
+        assertThat(log.append(records(1))).isFalse();
+        assertThat(log.segmentCount()).isEqualTo(2);
+        assertThat(log.read(LogPosition.START, 100)).hasSize(4);
+    }
+
+    @Test
+    void releasedSegmentsMakeRoomAndDeleteFiles() throws Exception {
+        SegmentLog log = SegmentLog.open(dir, SEGMENT_SIZE, 2, FsyncPolicy.NEVER, LogPosition.START);
+        assertThat(log.append(records(4))).isTrue();
+
+        List<LogRecord> drained = log.read(LogPosition.START, 100);
+        log.release(drained.get(drained.size() - 1).next());
+        assertThat(log.segmentCount()).isEqualTo(1);
+        assertThat(segmentFiles()).isEqualTo(1);
+
+        assertThat(log.append(records(2))).isTrue();
+        assertThat(log.segmentCount()).isEqualTo(2);
+        log.sync();
+    }
+
+    private List<byte[]> records(int count) {
+        return Collections.nCopies(count, RECORD);
+    }
+
+    private long segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(LogSegment::isSegment).count();
+        }
+    }
+}